@@ -15,22 +15,43 @@ package com.wrmsr.search.dsl;
 
 import com.google.inject.Binder;
 import com.google.inject.Module;
+import com.google.inject.Singleton;
 import com.google.inject.TypeLiteral;
 import com.wrmsr.search.dsl.field.FieldModule;
 import com.wrmsr.search.dsl.scoring.ScoringModule;
 import com.wrmsr.search.dsl.util.ScopeListeners;
+import com.wrmsr.search.dsl.util.SimpleScope;
 import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.store.Directory;
 
 import static com.google.inject.multibindings.Multibinder.newSetBinder;
 
 public class AppModule
         implements Module
 {
+    private final SearchConfig config;
+
+    public AppModule()
+    {
+        this(new SearchConfig());
+    }
+
+    public AppModule(SearchConfig config)
+    {
+        this.config = config;
+    }
+
     @Override
     public void configure(Binder binder)
     {
+        binder.bind(SearchConfig.class).toInstance(config);
+        binder.bind(SearchExecutor.class).in(Singleton.class);
+        binder.bind(DocScorerPool.class).in(Singleton.class);
+        binder.bind(Directory.class).toProvider(DirectoryProvider.class).in(Singleton.class);
+        binder.bind(SearchMetrics.class).toProvider(SearchMetricsProvider.class).in(Singleton.class);
+
         binder.install(new FieldModule());
-        binder.install(new ScoringModule());
+        binder.install(new ScoringModule(true, config.getScoreVarProfileSampleRate()));
 
         binder.bind(SearchService.class).to(SearchServiceImpl.class).asEagerSingleton();
 
@@ -41,6 +62,7 @@ public class AppModule
 
         newSetBinder(binder, DocSpecific.class);
 
+        binder.bind(SimpleScope.SeedsHolder.class).toProvider(searchScope.seedsHolderProvider()).in(SearchScoped.class);
         binder.bind(IndexSearcher.class).toProvider(SearchScope.<IndexSearcher>seededKeyProvider()).in(SearchScoped.class);
         binder.bind(Searcher.class).to(SearcherImpl.class).in(SearchScoped.class);
     }
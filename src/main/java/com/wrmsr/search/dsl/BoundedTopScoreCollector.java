@@ -0,0 +1,117 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wrmsr.search.dsl;
+
+import org.apache.lucene.index.AtomicReaderContext;
+import org.apache.lucene.search.CollectionTerminatedException;
+import org.apache.lucene.search.Collector;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.Scorer;
+import org.apache.lucene.search.TopDocs;
+
+import java.io.IOException;
+import java.util.Optional;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Top hits collector which stops collecting a segment as soon as its computed score's upper bound can no longer beat
+ * the current lowest hit, skipping segments whose bound is already too low before scoring any of their docs. Docs are
+ * collected in order so an equal score never displaces an earlier hit. Given a hit to search after, docs ranked at or
+ * before it are scored but not collected.
+ */
+final class BoundedTopScoreCollector
+        extends Collector
+{
+    private final int maxHits;
+    private final ScoreDocQueue queue;
+    private final Optional<ScoreDoc> after;
+
+    private Scorer scorer;
+    private int docBase;
+    private float maxScore = Float.POSITIVE_INFINITY;
+    private int totalHits;
+
+    public BoundedTopScoreCollector(int maxHits, Optional<ScoreDoc> after)
+    {
+        checkArgument(maxHits > 0);
+        this.maxHits = maxHits;
+        this.queue = new ScoreDocQueue(maxHits);
+        this.after = requireNonNull(after);
+    }
+
+    @Override
+    public void setScorer(Scorer scorer)
+            throws IOException
+    {
+        this.scorer = scorer;
+        if (scorer instanceof ComputedScoreQuery.ScoreBounded) {
+            maxScore = ((ComputedScoreQuery.ScoreBounded) scorer).getMaxScore();
+        }
+        else {
+            maxScore = Float.POSITIVE_INFINITY;
+        }
+        if (!canCompete()) {
+            throw new CollectionTerminatedException();
+        }
+    }
+
+    @Override
+    public void collect(int doc)
+            throws IOException
+    {
+        float score = scorer.score();
+        ++totalHits;
+        if (after.isPresent() && (score > after.get().score || (score == after.get().score && docBase + doc <= after.get().doc))) {
+            return;
+        }
+        if (queue.size() < maxHits) {
+            queue.add(new ScoreDoc(docBase + doc, score));
+        }
+        else if (score > queue.top().score) {
+            ScoreDoc top = queue.top();
+            top.doc = docBase + doc;
+            top.score = score;
+            queue.updateTop();
+        }
+        if (!canCompete()) {
+            throw new CollectionTerminatedException();
+        }
+    }
+
+    @Override
+    public void setNextReader(AtomicReaderContext context)
+            throws IOException
+    {
+        docBase = context.docBase;
+    }
+
+    @Override
+    public boolean acceptsDocsOutOfOrder()
+    {
+        return false;
+    }
+
+    public TopDocs getTopDocs()
+    {
+        ScoreDoc[] scoreDocs = queue.drain();
+        return new TopDocs(totalHits, scoreDocs, scoreDocs.length > 0 ? scoreDocs[0].score : Float.NaN);
+    }
+
+    private boolean canCompete()
+    {
+        return queue.size() < maxHits || maxScore > queue.top().score;
+    }
+}
@@ -16,6 +16,8 @@ package com.wrmsr.search.dsl;
 import org.apache.lucene.index.AtomicReaderContext;
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BulkScorer;
+import org.apache.lucene.search.Collector;
 import org.apache.lucene.search.ComplexExplanation;
 import org.apache.lucene.search.DocIdSetIterator;
 import org.apache.lucene.search.Explanation;
@@ -32,25 +34,56 @@ import java.util.Collections;
 import java.util.Set;
 import java.util.function.Supplier;
 
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Scores the documents matched by a wrapped query with a computed score. The query itself holds no per-document
+ * state: every scorer obtains its own DocScorer graph from the factory, so one instance may be reused and scored on
+ * many segments concurrently. With a positive block size, matching docs are buffered and scored a block at a time.
+ * Each scorer checks the deadline as it starts and then every Deadline.CHECK_INTERVAL docs, so a search scored
+ * concurrently is abandoned at its deadline too.
+ */
 public class ComputedScoreQuery
         extends Query
 {
-    protected final DocSpecific docSpecific;
-    protected final Supplier<Float> scoreSupplier;
+    protected final Supplier<DocScorer> docScorerFactory;
 
     protected final Query query;
 
-    protected AtomicReaderContext lastContext;
-    protected int lastDocId;
+    protected final int blockSize;
+
+    protected final Deadline deadline;
 
     public ComputedScoreQuery(
-            DocSpecific docSpecific,
-            Supplier<Float> scoreSupplier,
+            Supplier<DocScorer> docScorerFactory,
             Query query)
     {
-        this.docSpecific = docSpecific;
-        this.scoreSupplier = scoreSupplier;
+        this(docScorerFactory, query, 0);
+    }
+
+    public ComputedScoreQuery(
+            Supplier<DocScorer> docScorerFactory,
+            Query query,
+            int blockSize)
+    {
+        this(docScorerFactory, query, blockSize, Deadline.NONE);
+    }
+
+    public ComputedScoreQuery(
+            Supplier<DocScorer> docScorerFactory,
+            Query query,
+            int blockSize,
+            Deadline deadline)
+    {
+        this.docScorerFactory = docScorerFactory;
         this.query = query;
+        this.blockSize = blockSize;
+        this.deadline = requireNonNull(deadline);
+    }
+
+    public Supplier<DocScorer> getDocScorerFactory()
+    {
+        return docScorerFactory;
     }
 
     public Query getQuery()
@@ -64,7 +97,7 @@ public class ComputedScoreQuery
     {
         Query rewritten = query.rewrite(reader);
         if (rewritten != query) {
-            rewritten = new ComputedScoreQuery(docSpecific, scoreSupplier, rewritten);
+            rewritten = new ComputedScoreQuery(docScorerFactory, rewritten, blockSize, deadline);
             rewritten.setBoost(this.getBoost());
             return rewritten;
         }
@@ -136,6 +169,20 @@ public class ComputedScoreQuery
             return new ComputedScorer(context, disi, this, queryWeight);
         }
 
+        @Override
+        public BulkScorer bulkScorer(AtomicReaderContext context, boolean scoreDocsInOrder, Bits acceptDocs)
+                throws IOException
+        {
+            if (blockSize <= 0) {
+                return super.bulkScorer(context, scoreDocsInOrder, acceptDocs);
+            }
+            final DocIdSetIterator disi = innerWeight.scorer(context, acceptDocs);
+            if (disi == null) {
+                return null;
+            }
+            return new ComputedBulkScorer(context, disi, this, queryWeight);
+        }
+
         @Override
         public boolean scoresDocsOutOfOrder()
         {
@@ -166,27 +213,42 @@ public class ComputedScoreQuery
         }
     }
 
+    /**
+     * Scorer exposing an upper bound on its scores over the current segment.
+     */
+    public interface ScoreBounded
+    {
+        float getMaxScore();
+    }
+
     protected class ComputedScorer
             extends Scorer
+            implements ScoreBounded
     {
-        private final AtomicReaderContext context;
         private final DocIdSetIterator docIdSetIterator;
         private final float queryWeight;
+        private final DocScorer docScorer;
 
-        private int docId;
+        private int docId = -1;
+        private int lastDocId = -1;
+        private int sinceDeadlineCheck;
 
         public ComputedScorer(AtomicReaderContext context, DocIdSetIterator docIdSetIterator, Weight w, float queryWeight)
+                throws IOException
         {
             super(w);
-            this.context = context;
+            deadline.check();
             this.docIdSetIterator = docIdSetIterator;
             this.queryWeight = queryWeight;
+            this.docScorer = docScorerFactory.get();
+            docScorer.setAtomicReaderContext(context);
         }
 
         @Override
         public int nextDoc()
                 throws IOException
         {
+            checkDeadline();
             docId = docIdSetIterator.nextDoc();
             return docId;
         }
@@ -202,15 +264,17 @@ public class ComputedScoreQuery
                 throws IOException
         {
             assert docIdSetIterator.docID() != NO_MORE_DOCS;
-            if (lastContext != context) {
-                docSpecific.setAtomicReaderContext(context);
-                lastContext = context;
-            }
             if (lastDocId != docId) {
-                docSpecific.setDocId(docId);
+                docScorer.setDocId(docId);
                 lastDocId = docId;
             }
-            return scoreSupplier.get() * queryWeight;
+            return docScorer.score() * queryWeight;
+        }
+
+        @Override
+        public float getMaxScore()
+        {
+            return docScorer.maxScore() * queryWeight;
         }
 
         @Override
@@ -224,10 +288,19 @@ public class ComputedScoreQuery
         public int advance(int target)
                 throws IOException
         {
+            checkDeadline();
             docId = docIdSetIterator.advance(target);
             return docId;
         }
 
+        private void checkDeadline()
+        {
+            if (++sinceDeadlineCheck == Deadline.CHECK_INTERVAL) {
+                sinceDeadlineCheck = 0;
+                deadline.check();
+            }
+        }
+
         @Override
         public long cost()
         {
@@ -246,6 +319,120 @@ public class ComputedScoreQuery
         }
     }
 
+    /**
+     * Buffers the wrapped query's matches into blocks of docIds, scores each block with a single DocScorer call and
+     * replays the block to the collector.
+     */
+    protected class ComputedBulkScorer
+            extends BulkScorer
+    {
+        private final DocIdSetIterator docIdSetIterator;
+        private final float queryWeight;
+        private final DocScorer docScorer;
+        private final BlockScorer blockScorer;
+        private final int[] docIds = new int[blockSize];
+        private final float[] scores = new float[blockSize];
+        private int sinceDeadlineCheck;
+
+        public ComputedBulkScorer(AtomicReaderContext context, DocIdSetIterator docIdSetIterator, Weight w, float queryWeight)
+                throws IOException
+        {
+            deadline.check();
+            this.docIdSetIterator = docIdSetIterator;
+            this.queryWeight = queryWeight;
+            this.docScorer = docScorerFactory.get();
+            docScorer.setAtomicReaderContext(context);
+            this.blockScorer = new BlockScorer(w);
+        }
+
+        @Override
+        public boolean score(Collector collector, int max)
+                throws IOException
+        {
+            collector.setScorer(blockScorer);
+            int doc = docIdSetIterator.docID();
+            if (doc < 0) {
+                doc = docIdSetIterator.nextDoc();
+            }
+            while (doc < max) {
+                int count = 0;
+                do {
+                    docIds[count++] = doc;
+                    doc = docIdSetIterator.nextDoc();
+                }
+                while (count < blockSize && doc < max);
+
+                sinceDeadlineCheck += count;
+                if (sinceDeadlineCheck >= Deadline.CHECK_INTERVAL) {
+                    sinceDeadlineCheck = 0;
+                    deadline.check();
+                }
+                docScorer.scoreBlock(docIds, count, scores);
+                for (int i = 0; i < count; ++i) {
+                    blockScorer.docId = docIds[i];
+                    blockScorer.score = scores[i] * queryWeight;
+                    collector.collect(docIds[i]);
+                }
+            }
+            return doc != DocIdSetIterator.NO_MORE_DOCS;
+        }
+
+        private final class BlockScorer
+                extends Scorer
+                implements ScoreBounded
+        {
+            private int docId = -1;
+            private float score;
+
+            public BlockScorer(Weight w)
+            {
+                super(w);
+            }
+
+            @Override
+            public int docID()
+            {
+                return docId;
+            }
+
+            @Override
+            public float score()
+            {
+                return score;
+            }
+
+            @Override
+            public int freq()
+            {
+                return 1;
+            }
+
+            @Override
+            public float getMaxScore()
+            {
+                return docScorer.maxScore() * queryWeight;
+            }
+
+            @Override
+            public int nextDoc()
+            {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public int advance(int target)
+            {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public long cost()
+            {
+                return 1;
+            }
+        }
+    }
+
     @Override
     public Weight createWeight(IndexSearcher searcher)
             throws IOException
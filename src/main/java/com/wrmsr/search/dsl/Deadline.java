@@ -0,0 +1,78 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wrmsr.search.dsl;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * The point in time by which a search must finish, measured from when it was requested so time spent queued counts
+ * against it.
+ */
+public final class Deadline
+{
+    public static final Deadline NONE = new Deadline(Long.MAX_VALUE, 0);
+
+    /**
+     * Docs scored between checks of the clock by the searches honouring a deadline.
+     */
+    static final int CHECK_INTERVAL = 256;
+
+    private final long deadlineNanos;
+    private final long timeoutMillis;
+
+    private Deadline(long deadlineNanos, long timeoutMillis)
+    {
+        this.deadlineNanos = deadlineNanos;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * A timeoutMillis of zero never expires.
+     */
+    public static Deadline afterMillis(long timeoutMillis)
+    {
+        checkArgument(timeoutMillis >= 0);
+        if (timeoutMillis == 0) {
+            return NONE;
+        }
+        return new Deadline(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis), timeoutMillis);
+    }
+
+    public boolean isBounded()
+    {
+        return this != NONE;
+    }
+
+    public boolean isExpired()
+    {
+        return isBounded() && System.nanoTime() - deadlineNanos >= 0;
+    }
+
+    public void check()
+    {
+        if (isExpired()) {
+            throw new SearchTimeoutException(timeoutMillis);
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        return "Deadline{" +
+                "timeoutMillis=" + timeoutMillis +
+                '}';
+    }
+}
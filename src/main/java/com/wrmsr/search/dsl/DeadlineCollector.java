@@ -0,0 +1,71 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wrmsr.search.dsl;
+
+import org.apache.lucene.index.AtomicReaderContext;
+import org.apache.lucene.search.Collector;
+import org.apache.lucene.search.Scorer;
+
+import java.io.IOException;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Collector which abandons a search once its deadline passes, checking the clock at every segment and every
+ * Deadline.CHECK_INTERVAL collected docs rather than on each doc.
+ */
+final class DeadlineCollector
+        extends Collector
+{
+    private final Collector collector;
+    private final Deadline deadline;
+    private int collected;
+
+    public DeadlineCollector(Collector collector, Deadline deadline)
+    {
+        this.collector = requireNonNull(collector);
+        this.deadline = requireNonNull(deadline);
+    }
+
+    @Override
+    public void setScorer(Scorer scorer)
+            throws IOException
+    {
+        collector.setScorer(scorer);
+    }
+
+    @Override
+    public void collect(int doc)
+            throws IOException
+    {
+        if ((++collected & (Deadline.CHECK_INTERVAL - 1)) == 0) {
+            deadline.check();
+        }
+        collector.collect(doc);
+    }
+
+    @Override
+    public void setNextReader(AtomicReaderContext context)
+            throws IOException
+    {
+        deadline.check();
+        collector.setNextReader(context);
+    }
+
+    @Override
+    public boolean acceptsDocsOutOfOrder()
+    {
+        return collector.acceptsDocsOutOfOrder();
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wrmsr.search.dsl;
+
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.MMapDirectory;
+import org.apache.lucene.store.NIOFSDirectory;
+import org.apache.lucene.store.RAMDirectory;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Optional;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+public enum DirectoryType
+{
+    RAM {
+        @Override
+        public Directory open(Optional<File> path)
+        {
+            checkArgument(!path.isPresent(), "RAM directories do not take an index path");
+            return new RAMDirectory();
+        }
+    },
+
+    MMAP {
+        @Override
+        public Directory open(Optional<File> path)
+                throws IOException
+        {
+            return new MMapDirectory(getPath(path));
+        }
+    },
+
+    NIOFS {
+        @Override
+        public Directory open(Optional<File> path)
+                throws IOException
+        {
+            return new NIOFSDirectory(getPath(path));
+        }
+    };
+
+    public abstract Directory open(Optional<File> path)
+            throws IOException;
+
+    private static File getPath(Optional<File> path)
+    {
+        checkArgument(path.isPresent(), "file system directories require an index path");
+        return path.get();
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wrmsr.search.dsl;
+
+import com.wrmsr.search.dsl.scoring.ScoreBound;
+import com.wrmsr.search.dsl.util.FloatBlockSupplier;
+import com.wrmsr.search.dsl.util.FloatSupplier;
+import org.apache.lucene.index.AtomicReaderContext;
+
+import java.io.IOException;
+import java.util.Optional;
+import java.util.function.IntConsumer;
+
+import static java.util.Objects.requireNonNull;
+
+public interface DocScorer
+        extends DocSpecific
+{
+    float score();
+
+    /**
+     * Scores the first count docIds of the current segment, which must be in increasing order, into scores.
+     */
+    default void scoreBlock(int[] docIds, int count, float[] scores)
+    {
+        for (int i = 0; i < count; ++i) {
+            setDocId(docIds[i]);
+            scores[i] = score();
+        }
+    }
+
+    /**
+     * Upper bound on score() over every doc of the current segment.
+     */
+    default float maxScore()
+    {
+        return Float.POSITIVE_INFINITY;
+    }
+
+    final class Composite
+            implements DocScorer
+    {
+        private final DocSpecific docSpecific;
+        private final FloatSupplier scoreSupplier;
+        private final Optional<ScoreBound> scoreBound;
+        private final FloatBlockSupplier blockScoreSupplier;
+        private final IntConsumer setDocId;
+
+        private float maxScore = Float.POSITIVE_INFINITY;
+
+        public Composite(Iterable<DocSpecific> children, FloatSupplier scoreSupplier)
+        {
+            this(children, scoreSupplier, Optional.empty());
+        }
+
+        public Composite(Iterable<DocSpecific> children, FloatSupplier scoreSupplier, Optional<ScoreBound> scoreBound)
+        {
+            this.docSpecific = new DocSpecific.Composite(children);
+            this.scoreSupplier = requireNonNull(scoreSupplier);
+            this.scoreBound = requireNonNull(scoreBound);
+            this.blockScoreSupplier = scoreSupplier instanceof FloatBlockSupplier ? (FloatBlockSupplier) scoreSupplier : null;
+            this.setDocId = docSpecific::setDocId;
+        }
+
+        @Override
+        public void setAtomicReaderContext(AtomicReaderContext atomicReaderContext)
+                throws IOException
+        {
+            docSpecific.setAtomicReaderContext(atomicReaderContext);
+            maxScore = scoreBound.isPresent() ? scoreBound.get().getMaxScore(atomicReaderContext) : Float.POSITIVE_INFINITY;
+        }
+
+        @Override
+        public void setDocId(int docId)
+        {
+            docSpecific.setDocId(docId);
+        }
+
+        @Override
+        public float score()
+        {
+            return scoreSupplier.getAsFloat();
+        }
+
+        @Override
+        public void scoreBlock(int[] docIds, int count, float[] scores)
+        {
+            if (blockScoreSupplier != null) {
+                blockScoreSupplier.getAsFloats(setDocId, docIds, count, scores);
+            }
+            else {
+                DocScorer.super.scoreBlock(docIds, count, scores);
+            }
+        }
+
+        @Override
+        public float maxScore()
+        {
+            return maxScore;
+        }
+    }
+}
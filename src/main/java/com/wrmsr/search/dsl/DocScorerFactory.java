@@ -0,0 +1,81 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wrmsr.search.dsl;
+
+import com.google.inject.Key;
+import com.wrmsr.search.dsl.util.FloatSupplier;
+import com.wrmsr.search.dsl.util.SimpleScope;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Supplier;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Hands every scorer of a single search its own DocSpecific/score supplier graph, so scorers running concurrently on
+ * different segments or threads never share per-document state. Graphs are taken from the DocScorerPool, reseeded with
+ * the seeds of the search scope the factory was created in or built in a child scope seeded with them on a miss, and
+ * returned to it on close once the search has finished with them. A discarded factory returns nothing, since a failed
+ * search may have left scorers still running on its graphs.
+ */
+public final class DocScorerFactory
+        implements Supplier<DocScorer>, AutoCloseable
+{
+    private final DocScorerPool pool;
+    private final SimpleScope.Seeds seeds;
+    private final Key<FloatSupplier> scoreSupplierKey;
+    private final Queue<DocScorerPool.Graph> leased = new ConcurrentLinkedQueue<>();
+    private volatile boolean discarded;
+
+    DocScorerFactory(DocScorerPool pool, SimpleScope.Seeds seeds, Key<FloatSupplier> scoreSupplierKey)
+    {
+        this.pool = requireNonNull(pool);
+        this.seeds = requireNonNull(seeds);
+        this.scoreSupplierKey = requireNonNull(scoreSupplierKey);
+    }
+
+    public Key<FloatSupplier> getScoreSupplierKey()
+    {
+        return scoreSupplierKey;
+    }
+
+    @Override
+    public DocScorer get()
+    {
+        DocScorerPool.Graph graph = pool.borrow(seeds, scoreSupplierKey);
+        if (!discarded) {
+            leased.add(graph);
+        }
+        return graph.getDocScorer();
+    }
+
+    /**
+     * Drops every graph leased so far or later instead of returning it to the pool.
+     */
+    public void discard()
+    {
+        discarded = true;
+        leased.clear();
+    }
+
+    @Override
+    public void close()
+    {
+        DocScorerPool.Graph graph;
+        while (!discarded && (graph = leased.poll()) != null) {
+            pool.release(scoreSupplierKey, graph);
+        }
+    }
+}
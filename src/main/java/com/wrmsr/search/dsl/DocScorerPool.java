@@ -0,0 +1,131 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wrmsr.search.dsl;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.Maps;
+import com.google.inject.Inject;
+import com.google.inject.Injector;
+import com.google.inject.Key;
+import com.google.inject.TypeLiteral;
+import com.wrmsr.search.dsl.scoring.ScoreBound;
+import com.wrmsr.search.dsl.util.FloatSupplier;
+import com.wrmsr.search.dsl.util.SimpleScope;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps idle DocScorer graphs for reuse by later searches. Building a graph runs the whole SearchScoped
+ * DocSpecific/score supplier binding tree through Guice, while everything a built graph holds is per-segment state
+ * that setAtomicReaderContext resets or seeded values read through its SeedsHolder. Graphs are therefore pooled by
+ * which keys were seeded rather than by the seeded values, and a graph handed to a later search is reseeded with that
+ * search's seeds.
+ */
+class DocScorerPool
+{
+    private static final Key<Set<DocSpecific>> DOC_SPECIFIC_SET_KEY = Key.get(new TypeLiteral<Set<DocSpecific>>() {});
+
+    // score vars times the seed key sets searches use, so this only evicts when score vars are bound dynamically
+    private static final int MAX_POOLS = 1024;
+
+    /**
+     * A DocScorer along with the holder of the seeds it was built with or last reseeded with.
+     */
+    static final class Graph
+    {
+        private final DocScorer docScorer;
+        private final SimpleScope.SeedsHolder seedsHolder;
+
+        private Graph(DocScorer docScorer, SimpleScope.SeedsHolder seedsHolder)
+        {
+            this.docScorer = docScorer;
+            this.seedsHolder = seedsHolder;
+        }
+
+        public DocScorer getDocScorer()
+        {
+            return docScorer;
+        }
+    }
+
+    private final Injector injector;
+    private final SearchScope searchScope;
+    private final int maxIdlePerKey;
+
+    private final LoadingCache<Map.Entry<Set<Key<?>>, Key<FloatSupplier>>, Queue<Graph>> idle;
+
+    @Inject
+    public DocScorerPool(Injector injector, SearchScope searchScope, SearchConfig config)
+    {
+        this.injector = injector;
+        this.searchScope = searchScope;
+        this.maxIdlePerKey = config.getDocScorerPoolSize();
+        idle = CacheBuilder.newBuilder()
+                .maximumSize(MAX_POOLS)
+                .expireAfterAccess(1, TimeUnit.MINUTES)
+                .build(CacheLoader.from(() -> new ArrayBlockingQueue<>(maxIdlePerKey)));
+    }
+
+    public Graph borrow(SimpleScope.Seeds seeds, Key<FloatSupplier> scoreSupplierKey)
+    {
+        if (maxIdlePerKey > 0) {
+            Graph graph = idle.getUnchecked(Maps.immutableEntry(seeds.getKeys(), scoreSupplierKey)).poll();
+            if (graph != null) {
+                graph.seedsHolder.set(seeds);
+                return graph;
+            }
+        }
+        return newGraph(seeds, scoreSupplierKey);
+    }
+
+    /**
+     * Whether the score var has a ScoreBound bound next to it, so its DocScorers report a finite maxScore.
+     */
+    public boolean isBounded(Key<FloatSupplier> scoreSupplierKey)
+    {
+        return injector.getExistingBinding(scoreSupplierKey.ofType(ScoreBound.class)) != null;
+    }
+
+    public void release(Key<FloatSupplier> scoreSupplierKey, Graph graph)
+    {
+        if (maxIdlePerKey > 0) {
+            idle.getUnchecked(Maps.immutableEntry(graph.seedsHolder.get().getKeys(), scoreSupplierKey)).offer(graph);
+        }
+    }
+
+    private Graph newGraph(SimpleScope.Seeds seeds, Key<FloatSupplier> scoreSupplierKey)
+    {
+        searchScope.enter(seeds);
+        try {
+            Set<DocSpecific> docSpecificSet = injector.getInstance(DOC_SPECIFIC_SET_KEY);
+            FloatSupplier scoreSupplier = injector.getInstance(scoreSupplierKey);
+            Optional<ScoreBound> scoreBound = isBounded(scoreSupplierKey) ?
+                    Optional.of(injector.getInstance(scoreSupplierKey.ofType(ScoreBound.class))) :
+                    Optional.empty();
+            return new Graph(
+                    new DocScorer.Composite(docSpecificSet, scoreSupplier, scoreBound),
+                    injector.getInstance(SimpleScope.SeedsHolder.class));
+        }
+        finally {
+            searchScope.exit();
+        }
+    }
+}
@@ -0,0 +1,212 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wrmsr.search.dsl;
+
+import com.google.common.collect.ImmutableList;
+import com.wrmsr.search.dsl.field.PointFields;
+import com.wrmsr.search.dsl.field.StringFieldSource;
+import com.wrmsr.search.dsl.util.Point;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.DoubleDocValuesField;
+import org.apache.lucene.document.DoubleField;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.FieldType;
+import org.apache.lucene.document.FloatField;
+import org.apache.lucene.document.IntField;
+import org.apache.lucene.document.LongField;
+import org.apache.lucene.util.BytesRef;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.wrmsr.search.dsl.util.ImmutableCollectors.toImmutableList;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Reusable Document for a single indexing thread. IndexWriter consumes the document before addDocument returns, so
+ * each call just swaps the field values in place instead of allocating a new Document and Fields.
+ */
+final class DocumentBuilder
+{
+    private static final FieldType FIELD_TYPE = new FieldType();
+
+    static {
+        FIELD_TYPE.setIndexed(true);
+        FIELD_TYPE.setStored(true);
+        FIELD_TYPE.setTokenized(true);
+        FIELD_TYPE.freeze();
+    }
+
+    private static final class StringFieldSlot
+    {
+        private final Field field;
+        private final Optional<Field> docValuesField;
+        private final BytesRef bytes = new BytesRef();
+
+        public StringFieldSlot(String name, StringFieldSource source)
+        {
+            field = new Field(name, "", FIELD_TYPE);
+            docValuesField = source.createDocValuesField(name, "");
+        }
+
+        public void set(String value)
+        {
+            field.setStringValue(value);
+            if (docValuesField.isPresent()) {
+                bytes.copyChars(value);
+                docValuesField.get().setBytesValue(bytes);
+            }
+        }
+
+        public void addTo(Document document)
+        {
+            document.add(field);
+            docValuesField.ifPresent(document::add);
+        }
+    }
+
+    private static final class NumericFieldSlot
+    {
+        private final String name;
+        private final FieldType.NumericType numericType;
+        private final Field field;
+
+        public NumericFieldSlot(String name, FieldType.NumericType numericType)
+        {
+            checkArgument(SearchService.Doc.FIELDS.contains(name), "docs have no field %s", name);
+            this.name = name;
+            this.numericType = requireNonNull(numericType, name);
+            switch (numericType) {
+                case INT:
+                    field = new IntField(name, 0, Field.Store.YES);
+                    break;
+                case LONG:
+                    field = new LongField(name, 0L, Field.Store.YES);
+                    break;
+                case FLOAT:
+                    field = new FloatField(name, 0.0f, Field.Store.YES);
+                    break;
+                case DOUBLE:
+                    field = new DoubleField(name, 0.0, Field.Store.YES);
+                    break;
+                default:
+                    throw new IllegalArgumentException(Objects.toString(numericType));
+            }
+        }
+
+        public void set(Document document, SearchService.Doc doc)
+        {
+            Number value = (Number) doc.getValue(name);
+            // the field is left out of docs with no value rather than indexed as zero
+            document.removeField(name);
+            if (value == null) {
+                return;
+            }
+            switch (numericType) {
+                case INT:
+                    field.setIntValue(value.intValue());
+                    break;
+                case LONG:
+                    field.setLongValue(value.longValue());
+                    break;
+                case FLOAT:
+                    field.setFloatValue(value.floatValue());
+                    break;
+                case DOUBLE:
+                    field.setDoubleValue(value.doubleValue());
+                    break;
+            }
+            document.add(field);
+        }
+    }
+
+    private static final class PointFieldSlot
+    {
+        private final String name;
+        private final List<Field> fields;
+        private final Field latitude;
+        private final Field longitude;
+        private final Field latitudeDocValues;
+        private final Field longitudeDocValues;
+
+        public PointFieldSlot(String name)
+        {
+            checkArgument(SearchService.Doc.FIELDS.contains(name), "docs have no field %s", name);
+            this.name = name;
+            latitude = new DoubleField(PointFields.getLatitudeField(name), 0.0, Field.Store.YES);
+            longitude = new DoubleField(PointFields.getLongitudeField(name), 0.0, Field.Store.YES);
+            latitudeDocValues = new DoubleDocValuesField(PointFields.getLatitudeField(name), 0.0);
+            longitudeDocValues = new DoubleDocValuesField(PointFields.getLongitudeField(name), 0.0);
+            fields = ImmutableList.of(latitude, longitude, latitudeDocValues, longitudeDocValues);
+        }
+
+        public void set(Document document, SearchService.Doc doc)
+        {
+            Point value = (Point) doc.getValue(name);
+            document.removeFields(PointFields.getLatitudeField(name));
+            document.removeFields(PointFields.getLongitudeField(name));
+            if (value == null) {
+                return;
+            }
+            latitude.setDoubleValue(value.getLatitude());
+            longitude.setDoubleValue(value.getLongitude());
+            latitudeDocValues.setDoubleValue(value.getLatitude());
+            longitudeDocValues.setDoubleValue(value.getLongitude());
+            fields.forEach(document::add);
+        }
+    }
+
+    private final Document document = new Document();
+    private final StringFieldSlot title;
+    private final StringFieldSlot isbn;
+    private final List<NumericFieldSlot> numericFields;
+    private final List<PointFieldSlot> pointFields;
+
+    public DocumentBuilder(Map<String, StringFieldSource> stringFieldSources, Map<String, FieldType.NumericType> numericFieldTypes, Set<String> pointFieldNames)
+    {
+        title = newStringFieldSlot(stringFieldSources, "title");
+        isbn = newStringFieldSlot(stringFieldSources, "isbn");
+        for (StringFieldSlot slot : ImmutableList.of(title, isbn)) {
+            slot.addTo(document);
+        }
+        numericFields = numericFieldTypes.entrySet().stream()
+                .map(e -> new NumericFieldSlot(e.getKey(), e.getValue()))
+                .collect(toImmutableList());
+        pointFields = pointFieldNames.stream()
+                .map(PointFieldSlot::new)
+                .collect(toImmutableList());
+    }
+
+    private static StringFieldSlot newStringFieldSlot(Map<String, StringFieldSource> stringFieldSources, String name)
+    {
+        return new StringFieldSlot(name, stringFieldSources.getOrDefault(name, StringFieldSource.STORED));
+    }
+
+    public Document build(SearchService.Doc doc)
+    {
+        title.set(doc.getTitle());
+        isbn.set(doc.getIsbn());
+        for (NumericFieldSlot numericField : numericFields) {
+            numericField.set(document, doc);
+        }
+        for (PointFieldSlot pointField : pointFields) {
+            pointField.set(document, doc);
+        }
+        return document;
+    }
+}
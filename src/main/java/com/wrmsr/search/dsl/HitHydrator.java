@@ -0,0 +1,248 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wrmsr.search.dsl;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.wrmsr.search.dsl.field.PointFields;
+import com.wrmsr.search.dsl.util.Point;
+import org.apache.lucene.document.FieldType;
+import org.apache.lucene.index.AtomicReaderContext;
+import org.apache.lucene.index.FieldInfo;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.ReaderUtil;
+import org.apache.lucene.index.StoredFieldVisitor;
+import org.apache.lucene.search.ScoreDoc;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.wrmsr.search.dsl.util.ImmutableCollectors.toImmutableMap;
+
+/**
+ * Loads the stored fields of a page of hits in docId order rather than score order, so each segment's stored fields
+ * are read front to back and neighbouring hits land in the same compressed chunk, then hands the hits back in their
+ * original score order.
+ */
+final class HitHydrator
+{
+    private final Set<String> fields;
+    private final Map<String, FieldType.NumericType> numericFields;
+    private final Set<String> pointFields;
+
+    public HitHydrator(Set<String> fields, Map<String, FieldType.NumericType> numericFields, Set<String> pointFields)
+    {
+        checkArgument(SearchService.Doc.FIELDS.containsAll(fields), "unknown fields: %s", fields);
+        this.fields = fields;
+        this.numericFields = numericFields;
+        this.pointFields = pointFields;
+    }
+
+    public List<SearchService.Hit> hydrate(IndexReader indexReader, ScoreDoc[] scoreDocs)
+            throws IOException
+    {
+        SearchService.Doc[] docs = new SearchService.Doc[scoreDocs.length];
+
+        if (!fields.isEmpty()) {
+            Integer[] order = new Integer[scoreDocs.length];
+            for (int i = 0; i < order.length; ++i) {
+                order[i] = i;
+            }
+            Arrays.sort(order, Comparator.comparingInt(i -> scoreDocs[i].doc));
+
+            List<AtomicReaderContext> leaves = indexReader.leaves();
+            FieldsVisitor visitor = new FieldsVisitor(fields, numericFields, pointFields);
+            for (int i : order) {
+                int docId = scoreDocs[i].doc;
+                AtomicReaderContext leaf = leaves.get(ReaderUtil.subIndex(docId, leaves));
+                visitor.reset();
+                leaf.reader().document(docId - leaf.docBase, visitor);
+                docs[i] = visitor.getDoc();
+            }
+        }
+
+        ImmutableList.Builder<SearchService.Hit> builder = ImmutableList.builder();
+        for (int i = 0; i < scoreDocs.length; ++i) {
+            builder.add(new SearchService.Hit(scoreDocs[i].doc, docs[i], scoreDocs[i].score));
+        }
+        return builder.build();
+    }
+
+    private static final class FieldsVisitor
+            extends StoredFieldVisitor
+    {
+        private final boolean loadTitle;
+        private final boolean loadIsbn;
+        private final Map<String, FieldType.NumericType> loadNumbers;
+        private final Set<String> loadPoints;
+        // stored latitude and longitude field names to the point field they belong to
+        private final Map<String, String> latitudeFields;
+        private final Map<String, String> longitudeFields;
+        private final int fieldCount;
+        private final Map<String, Number> numbers = new HashMap<>();
+        private final Map<String, Double> latitudes = new HashMap<>();
+        private final Map<String, Double> longitudes = new HashMap<>();
+
+        private int loadedCount;
+        private String title;
+        private String isbn;
+
+        public FieldsVisitor(Set<String> fields, Map<String, FieldType.NumericType> numericFields, Set<String> pointFields)
+        {
+            loadTitle = fields.contains("title");
+            loadIsbn = fields.contains("isbn");
+            loadNumbers = ImmutableMap.copyOf(Maps.filterKeys(numericFields, fields::contains));
+            loadPoints = ImmutableSet.copyOf(Sets.intersection(pointFields, fields));
+            latitudeFields = loadPoints.stream().collect(toImmutableMap(PointFields::getLatitudeField, f -> f));
+            longitudeFields = loadPoints.stream().collect(toImmutableMap(PointFields::getLongitudeField, f -> f));
+            // a point is stored as a latitude and a longitude
+            fieldCount = (loadTitle ? 1 : 0) + (loadIsbn ? 1 : 0) + loadNumbers.size() + 2 * loadPoints.size();
+        }
+
+        public void reset()
+        {
+            loadedCount = 0;
+            title = null;
+            isbn = null;
+            numbers.clear();
+            latitudes.clear();
+            longitudes.clear();
+        }
+
+        public SearchService.Doc getDoc()
+        {
+            Map<String, Object> values = new HashMap<>(numbers);
+            values.put("title", title);
+            values.put("isbn", isbn);
+            for (String pointField : loadPoints) {
+                Double latitude = latitudes.get(pointField);
+                Double longitude = longitudes.get(pointField);
+                if (latitude != null && longitude != null) {
+                    values.put(pointField, new Point(latitude.floatValue(), longitude.floatValue()));
+                }
+            }
+            return SearchService.Doc.fromValues(values);
+        }
+
+        @Override
+        public Status needsField(FieldInfo fieldInfo)
+                throws IOException
+        {
+            if (loadedCount == fieldCount) {
+                return Status.STOP;
+            }
+            if (loadNumbers.containsKey(fieldInfo.name) || latitudeFields.containsKey(fieldInfo.name) || longitudeFields.containsKey(fieldInfo.name)) {
+                return Status.YES;
+            }
+            switch (fieldInfo.name) {
+                case "title":
+                    return loadTitle ? Status.YES : Status.NO;
+                case "isbn":
+                    return loadIsbn ? Status.YES : Status.NO;
+                default:
+                    return Status.NO;
+            }
+        }
+
+        @Override
+        public void stringField(FieldInfo fieldInfo, String value)
+                throws IOException
+        {
+            switch (fieldInfo.name) {
+                case "title":
+                    title = value;
+                    break;
+                case "isbn":
+                    isbn = value;
+                    break;
+            }
+            ++loadedCount;
+        }
+
+        @Override
+        public void intField(FieldInfo fieldInfo, int value)
+                throws IOException
+        {
+            numberField(fieldInfo, value);
+        }
+
+        @Override
+        public void longField(FieldInfo fieldInfo, long value)
+                throws IOException
+        {
+            numberField(fieldInfo, value);
+        }
+
+        @Override
+        public void floatField(FieldInfo fieldInfo, float value)
+                throws IOException
+        {
+            numberField(fieldInfo, value);
+        }
+
+        private void numberField(FieldInfo fieldInfo, Number value)
+        {
+            FieldType.NumericType numericType = loadNumbers.get(fieldInfo.name);
+            if (numericType != null) {
+                numbers.put(fieldInfo.name, toNumericType(numericType, value));
+            }
+            ++loadedCount;
+        }
+
+        private static Number toNumericType(FieldType.NumericType numericType, Number value)
+        {
+            switch (numericType) {
+                case INT:
+                    return value.intValue();
+                case LONG:
+                    return value.longValue();
+                case FLOAT:
+                    return value.floatValue();
+                case DOUBLE:
+                    return value.doubleValue();
+                default:
+                    throw new IllegalArgumentException(Objects.toString(numericType));
+            }
+        }
+
+        @Override
+        public void doubleField(FieldInfo fieldInfo, double value)
+                throws IOException
+        {
+            if (loadNumbers.containsKey(fieldInfo.name)) {
+                numberField(fieldInfo, value);
+                return;
+            }
+            String latitudeOf = latitudeFields.get(fieldInfo.name);
+            if (latitudeOf != null) {
+                latitudes.put(latitudeOf, value);
+            }
+            String longitudeOf = longitudeFields.get(fieldInfo.name);
+            if (longitudeOf != null) {
+                longitudes.put(longitudeOf, value);
+            }
+            ++loadedCount;
+        }
+    }
+}
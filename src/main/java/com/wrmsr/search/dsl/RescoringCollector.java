@@ -0,0 +1,114 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wrmsr.search.dsl;
+
+import org.apache.lucene.index.AtomicReaderContext;
+import org.apache.lucene.search.Collector;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.Scorer;
+import org.apache.lucene.search.TopDocs;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Two-phase collector keeping the top window of each segment's docs by the query's cheap score, then evaluating the
+ * expensive DocScorer only on that window, as one block in docId order, before the final top hits selection.
+ */
+final class RescoringCollector
+        extends Collector
+{
+    private final DocScorer docScorer;
+    private final ScoreDocQueue window;
+    private final ScoreDocQueue hits;
+
+    private Scorer scorer;
+    private AtomicReaderContext context;
+    private ScoreDoc spare;
+    private int totalHits;
+
+    public RescoringCollector(DocScorer docScorer, int windowSize, int maxHits)
+    {
+        this.docScorer = docScorer;
+        this.window = new ScoreDocQueue(windowSize);
+        this.hits = new ScoreDocQueue(maxHits);
+    }
+
+    @Override
+    public void setScorer(Scorer scorer)
+            throws IOException
+    {
+        this.scorer = scorer;
+    }
+
+    @Override
+    public void collect(int doc)
+            throws IOException
+    {
+        if (spare == null) {
+            spare = new ScoreDoc(doc, scorer.score());
+        }
+        else {
+            spare.doc = doc;
+            spare.score = scorer.score();
+        }
+        spare = window.insertWithOverflow(spare);
+    }
+
+    @Override
+    public void setNextReader(AtomicReaderContext context)
+            throws IOException
+    {
+        rescoreWindow();
+        this.context = context;
+    }
+
+    @Override
+    public boolean acceptsDocsOutOfOrder()
+    {
+        return true;
+    }
+
+    public TopDocs getTopDocs()
+            throws IOException
+    {
+        rescoreWindow();
+        ScoreDoc[] scoreDocs = hits.drain();
+        return new TopDocs(totalHits, scoreDocs, scoreDocs.length > 0 ? scoreDocs[0].score : Float.NaN);
+    }
+
+    private void rescoreWindow()
+            throws IOException
+    {
+        if (context == null || window.size() == 0) {
+            return;
+        }
+        ScoreDoc[] candidates = window.drain();
+        Arrays.sort(candidates, Comparator.comparingInt(scoreDoc -> scoreDoc.doc));
+        int[] docIds = new int[candidates.length];
+        for (int i = 0; i < candidates.length; ++i) {
+            docIds[i] = candidates[i].doc;
+        }
+        float[] scores = new float[candidates.length];
+        docScorer.setAtomicReaderContext(context);
+        docScorer.scoreBlock(docIds, candidates.length, scores);
+        totalHits += candidates.length;
+        for (int i = 0; i < candidates.length; ++i) {
+            candidates[i].score = scores[i];
+            candidates[i].doc += context.docBase;
+            hits.insertWithOverflow(candidates[i]);
+        }
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wrmsr.search.dsl;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.wrmsr.search.dsl.query.node.QueryNode;
+import com.wrmsr.search.dsl.util.Point;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Holds the hits of recent searches keyed by everything that determines them: the structural query, the score var
+ * and its seeds, the hit count and fields, and the version of the reader they were computed against. An entry weighs
+ * one unit for itself plus one per hit and hydrated field, so a few deep requests cannot crowd out many small ones
+ * unnoticed.
+ */
+class ResultCache
+{
+    private final Cache<Key, List<SearchService.Hit>> results;
+
+    public ResultCache(long maximumWeight)
+    {
+        checkArgument(maximumWeight > 0);
+        results = CacheBuilder.newBuilder()
+                .maximumWeight(maximumWeight)
+                .<Key, List<SearchService.Hit>>weigher((key, hits) -> 1 + hits.size() * (1 + key.fields.size()))
+                .recordStats()
+                .build();
+    }
+
+    public Optional<List<SearchService.Hit>> get(SearchRequest request, long readerVersion)
+    {
+        return Optional.ofNullable(results.getIfPresent(new Key(request, readerVersion)));
+    }
+
+    public void put(SearchRequest request, long readerVersion, List<SearchService.Hit> hits)
+    {
+        results.put(new Key(request, readerVersion), hits);
+    }
+
+    /**
+     * Drops every entry, called once a new reader has replaced the one they were computed against.
+     */
+    public void invalidateAll()
+    {
+        results.invalidateAll();
+    }
+
+    public CacheStats getStats()
+    {
+        return results.stats();
+    }
+
+    private static final class Key
+    {
+        private final QueryNode queryNode;
+        private final int maxHits;
+        private final Set<String> fields;
+        private final String scoreVar;
+        private final Optional<Point> origin;
+        private final int rescoreWindow;
+        private final Optional<String> windowScoreVar;
+        private final Optional<SearchService.Cursor> searchAfter;
+        private final long readerVersion;
+
+        // requests are mutable, so keys copy out their current state
+        public Key(SearchRequest request, long readerVersion)
+        {
+            this.queryNode = request.getQueryNode();
+            this.maxHits = request.getMaxHits();
+            this.fields = request.getFields();
+            this.scoreVar = request.getScoreVar();
+            this.origin = request.getOrigin();
+            this.rescoreWindow = request.getRescoreWindow();
+            this.windowScoreVar = request.getWindowScoreVar();
+            this.searchAfter = request.getSearchAfter();
+            this.readerVersion = readerVersion;
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            Key key = (Key) o;
+            return maxHits == key.maxHits &&
+                    rescoreWindow == key.rescoreWindow &&
+                    readerVersion == key.readerVersion &&
+                    Objects.equals(queryNode, key.queryNode) &&
+                    Objects.equals(fields, key.fields) &&
+                    Objects.equals(scoreVar, key.scoreVar) &&
+                    Objects.equals(origin, key.origin) &&
+                    Objects.equals(windowScoreVar, key.windowScoreVar) &&
+                    Objects.equals(searchAfter, key.searchAfter);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return Objects.hash(queryNode, maxHits, fields, scoreVar, origin, rescoreWindow, windowScoreVar, searchAfter, readerVersion);
+        }
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wrmsr.search.dsl;
+
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.util.PriorityQueue;
+
+/**
+ * Bounded min-queue of the best ScoreDocs seen, breaking score ties towards lower docIds like Lucene's own top docs
+ * collectors.
+ */
+final class ScoreDocQueue
+        extends PriorityQueue<ScoreDoc>
+{
+    public ScoreDocQueue(int maxSize)
+    {
+        super(maxSize);
+    }
+
+    @Override
+    protected boolean lessThan(ScoreDoc a, ScoreDoc b)
+    {
+        if (a.score == b.score) {
+            return a.doc > b.doc;
+        }
+        return a.score < b.score;
+    }
+
+    /**
+     * Drains the queue best first.
+     */
+    public ScoreDoc[] drain()
+    {
+        ScoreDoc[] scoreDocs = new ScoreDoc[size()];
+        for (int i = scoreDocs.length - 1; i >= 0; --i) {
+            scoreDocs[i] = pop();
+        }
+        return scoreDocs;
+    }
+}
@@ -0,0 +1,269 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wrmsr.search.dsl;
+
+import java.io.File;
+import java.util.Optional;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+public class SearchConfig
+{
+    private int searchThreads = 0;
+    private int indexThreads = Runtime.getRuntime().availableProcessors();
+    private long refreshIntervalMillis = 1000;
+    private long queryCacheSize = 10_000;
+    private long resultCacheWeight = 0;
+    private long filterCacheBytes = 32L << 20;
+    private int docScorerPoolSize = 64;
+    private int scoreBlockSize = 64;
+    private boolean metricsEnabled = false;
+    private int scoreVarProfileSampleRate = 0;
+    private int requestThreads = Runtime.getRuntime().availableProcessors();
+    private int requestQueueSize = 128;
+    private int indexRequestQueueSize = 16;
+    private DirectoryType directoryType = DirectoryType.RAM;
+    private Optional<File> indexPath = Optional.empty();
+
+    public int getSearchThreads()
+    {
+        return searchThreads;
+    }
+
+    /**
+     * Number of worker threads segments are scored on within a single search. Zero scores all segments serially on
+     * the calling thread.
+     */
+    public SearchConfig setSearchThreads(int searchThreads)
+    {
+        checkArgument(searchThreads >= 0);
+        this.searchThreads = searchThreads;
+        return this;
+    }
+
+    public int getIndexThreads()
+    {
+        return indexThreads;
+    }
+
+    /**
+     * Number of threads addDocs fans out to. 1 indexes on the calling thread.
+     */
+    public SearchConfig setIndexThreads(int indexThreads)
+    {
+        checkArgument(indexThreads >= 1);
+        this.indexThreads = indexThreads;
+        return this;
+    }
+
+    public long getRefreshIntervalMillis()
+    {
+        return refreshIntervalMillis;
+    }
+
+    /**
+     * Interval at which added docs are made visible to searches without waiting for a commit. Zero disables
+     * background refresh.
+     */
+    public SearchConfig setRefreshIntervalMillis(long refreshIntervalMillis)
+    {
+        checkArgument(refreshIntervalMillis >= 0);
+        this.refreshIntervalMillis = refreshIntervalMillis;
+        return this;
+    }
+
+    public long getQueryCacheSize()
+    {
+        return queryCacheSize;
+    }
+
+    /**
+     * Maximum number of compiled queries, and separately of analyzed match texts, kept for reuse. Zero compiles every
+     * query from scratch.
+     */
+    public SearchConfig setQueryCacheSize(long queryCacheSize)
+    {
+        checkArgument(queryCacheSize >= 0);
+        this.queryCacheSize = queryCacheSize;
+        return this;
+    }
+
+    public long getResultCacheWeight()
+    {
+        return resultCacheWeight;
+    }
+
+    /**
+     * Maximum total weight of cached search results, each weighing one plus one per hit and hydrated field, served
+     * until the next refresh replaces the reader. Zero, the default, runs every search.
+     */
+    public SearchConfig setResultCacheWeight(long resultCacheWeight)
+    {
+        checkArgument(resultCacheWeight >= 0);
+        this.resultCacheWeight = resultCacheWeight;
+        return this;
+    }
+
+    public long getFilterCacheBytes()
+    {
+        return filterCacheBytes;
+    }
+
+    /**
+     * Maximum heap size of the per-segment doc sets cached for MUST_NOT clauses and constant score subtrees. Zero
+     * matches them from postings on every search.
+     */
+    public SearchConfig setFilterCacheBytes(long filterCacheBytes)
+    {
+        checkArgument(filterCacheBytes >= 0);
+        this.filterCacheBytes = filterCacheBytes;
+        return this;
+    }
+
+    public int getDocScorerPoolSize()
+    {
+        return docScorerPoolSize;
+    }
+
+    /**
+     * Maximum number of idle per-scorer DocSpecific/score supplier graphs kept per search seeds and score var for reuse
+     * by later searches. Zero builds a fresh graph through the injector for every scorer.
+     */
+    public SearchConfig setDocScorerPoolSize(int docScorerPoolSize)
+    {
+        checkArgument(docScorerPoolSize >= 0);
+        this.docScorerPoolSize = docScorerPoolSize;
+        return this;
+    }
+
+    public int getScoreBlockSize()
+    {
+        return scoreBlockSize;
+    }
+
+    /**
+     * Number of matching docs buffered and scored together as one block. Zero scores each doc as it is matched.
+     */
+    public SearchConfig setScoreBlockSize(int scoreBlockSize)
+    {
+        checkArgument(scoreBlockSize >= 0);
+        this.scoreBlockSize = scoreBlockSize;
+        return this;
+    }
+
+    public boolean isMetricsEnabled()
+    {
+        return metricsEnabled;
+    }
+
+    /**
+     * Records per-phase search latencies, hit counts and docs scored into histograms published over JMX. When
+     * disabled searches are not timed at all.
+     */
+    public SearchConfig setMetricsEnabled(boolean metricsEnabled)
+    {
+        this.metricsEnabled = metricsEnabled;
+        return this;
+    }
+
+    public int getScoreVarProfileSampleRate()
+    {
+        return scoreVarProfileSampleRate;
+    }
+
+    /**
+     * Weaves invocation counters into compiled score var suppliers, timing one in every scoreVarProfileSampleRate
+     * invocations. Must be zero, which disables profiling, or a power of two.
+     */
+    public SearchConfig setScoreVarProfileSampleRate(int scoreVarProfileSampleRate)
+    {
+        checkArgument(scoreVarProfileSampleRate == 0 || (scoreVarProfileSampleRate > 0 && Integer.bitCount(scoreVarProfileSampleRate) == 1));
+        this.scoreVarProfileSampleRate = scoreVarProfileSampleRate;
+        return this;
+    }
+
+    public int getRequestThreads()
+    {
+        return requestThreads;
+    }
+
+    /**
+     * Number of threads serving asynchronous searches.
+     */
+    public SearchConfig setRequestThreads(int requestThreads)
+    {
+        checkArgument(requestThreads >= 1);
+        this.requestThreads = requestThreads;
+        return this;
+    }
+
+    public int getRequestQueueSize()
+    {
+        return requestQueueSize;
+    }
+
+    /**
+     * Number of asynchronous searches which may wait for a request thread. Searches submitted while the queue is full
+     * are rejected.
+     */
+    public SearchConfig setRequestQueueSize(int requestQueueSize)
+    {
+        checkArgument(requestQueueSize >= 0);
+        this.requestQueueSize = requestQueueSize;
+        return this;
+    }
+
+    public int getIndexRequestQueueSize()
+    {
+        return indexRequestQueueSize;
+    }
+
+    /**
+     * Number of asynchronous index operations which may wait behind the one running. They run one at a time, each
+     * already fanning out to the index threads, and are rejected while the queue is full.
+     */
+    public SearchConfig setIndexRequestQueueSize(int indexRequestQueueSize)
+    {
+        checkArgument(indexRequestQueueSize >= 0);
+        this.indexRequestQueueSize = indexRequestQueueSize;
+        return this;
+    }
+
+    public DirectoryType getDirectoryType()
+    {
+        return directoryType;
+    }
+
+    /**
+     * Storage backing the index. MMAP keeps a large index in the page cache off-heap, NIOFS reads it with positional
+     * file channel reads, and RAM keeps everything on-heap and is intended for tests.
+     */
+    public SearchConfig setDirectoryType(DirectoryType directoryType)
+    {
+        this.directoryType = requireNonNull(directoryType);
+        return this;
+    }
+
+    public Optional<File> getIndexPath()
+    {
+        return indexPath;
+    }
+
+    public SearchConfig setIndexPath(File indexPath)
+    {
+        this.indexPath = Optional.of(indexPath);
+        return this;
+    }
+}
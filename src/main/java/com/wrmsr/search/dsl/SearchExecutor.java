@@ -0,0 +1,56 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wrmsr.search.dsl;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.inject.Inject;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.search.IndexSearcher;
+
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class SearchExecutor
+{
+    private final Optional<ExecutorService> executor;
+
+    @Inject
+    public SearchExecutor(SearchConfig config)
+    {
+        if (config.getSearchThreads() > 0) {
+            executor = Optional.of(Executors.newFixedThreadPool(
+                    config.getSearchThreads(),
+                    new ThreadFactoryBuilder().setNameFormat("search-%d").setDaemon(true).build()));
+        }
+        else {
+            executor = Optional.empty();
+        }
+    }
+
+    public Optional<ExecutorService> getExecutor()
+    {
+        return executor;
+    }
+
+    public IndexSearcher newIndexSearcher(IndexReader indexReader)
+    {
+        if (executor.isPresent()) {
+            return new SlicedIndexSearcher(indexReader, executor.get());
+        }
+        else {
+            return new IndexSearcher(indexReader);
+        }
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wrmsr.search.dsl;
+
+import com.google.common.cache.CacheStats;
+import com.wrmsr.search.dsl.util.InvocationCounter;
+
+import java.io.Closeable;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Receives per-search measurements. Bind another implementation in place of the config-selected one to forward them
+ * to an external metrics system.
+ */
+public interface SearchMetrics
+        extends Closeable
+{
+    SearchMetrics NOOP = new SearchMetrics()
+    {
+        @Override
+        public Timer startTimer()
+        {
+            return Timer.NOOP;
+        }
+
+        @Override
+        public void recordSearch(int hits, int docsScored)
+        {
+        }
+
+        @Override
+        public void recordCachedSearch()
+        {
+        }
+
+        @Override
+        public void recordRejection()
+        {
+        }
+
+        @Override
+        public void recordTimeout()
+        {
+        }
+    };
+
+    /**
+     * Starts timing a single search, which then marks the end of each phase it goes through.
+     */
+    Timer startTimer();
+
+    void recordSearch(int hits, int docsScored);
+
+    /**
+     * Records a search answered from the result cache, which is counted apart from the searches that were scored.
+     */
+    void recordCachedSearch();
+
+    /**
+     * Records a request turned away because its queue was full.
+     */
+    void recordRejection();
+
+    /**
+     * Records a search abandoned at its deadline.
+     */
+    void recordTimeout();
+
+    /**
+     * Publishes the statistics of the result cache, which are read each time they are reported.
+     */
+    default void exportResultCacheStats(Supplier<CacheStats> stats)
+    {
+    }
+
+    /**
+     * Publishes the statistics of the filter cache, which are read each time they are reported.
+     */
+    default void exportFilterCacheStats(Supplier<CacheStats> stats)
+    {
+    }
+
+    /**
+     * Publishes the statistics of the compiled query cache, which are read each time they are reported.
+     */
+    default void exportQueryCacheStats(Supplier<CacheStats> stats)
+    {
+    }
+
+    /**
+     * Publishes the statistics of the analyzed token cache, which are read each time they are reported.
+     */
+    default void exportTokenCacheStats(Supplier<CacheStats> stats)
+    {
+    }
+
+    /**
+     * Publishes the score var profile, keyed by score var name, which is read each time it is reported.
+     */
+    default void exportScoreVarProfile(Supplier<Map<String, InvocationCounter.Snapshot>> profile)
+    {
+    }
+
+    @Override
+    default void close()
+    {
+    }
+
+    interface Timer
+    {
+        Timer NOOP = new Timer()
+        {
+            @Override
+            public void mark(SearchPhase phase)
+            {
+            }
+
+            @Override
+            public void finish()
+            {
+            }
+        };
+
+        /**
+         * Records the time since the previous mark, or since the timer was started, as spent in phase.
+         */
+        void mark(SearchPhase phase);
+
+        /**
+         * Records the time since the timer was started as the search's TOTAL.
+         */
+        void finish();
+    }
+}
@@ -0,0 +1,38 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wrmsr.search.dsl;
+
+import com.google.inject.Inject;
+import com.google.inject.Provider;
+
+public class SearchMetricsProvider
+        implements Provider<SearchMetrics>
+{
+    private final SearchConfig config;
+
+    @Inject
+    public SearchMetricsProvider(SearchConfig config)
+    {
+        this.config = config;
+    }
+
+    @Override
+    public SearchMetrics get()
+    {
+        if (config.isMetricsEnabled()) {
+            return new SearchStats().export();
+        }
+        return SearchMetrics.NOOP;
+    }
+}
@@ -0,0 +1,179 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wrmsr.search.dsl;
+
+import com.google.common.collect.ImmutableSet;
+import com.wrmsr.search.dsl.query.node.QueryNode;
+import com.wrmsr.search.dsl.util.Point;
+
+import java.util.Optional;
+import java.util.Set;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+public class SearchRequest
+{
+    public static final String DEFAULT_SCORE_VAR = "static_weird_score";
+
+    private final QueryNode queryNode;
+    private int maxHits = 10;
+    private Set<String> fields = SearchService.Doc.FIELDS;
+    private String scoreVar = DEFAULT_SCORE_VAR;
+    private Optional<Point> origin = Optional.empty();
+    private int rescoreWindow = 0;
+    private Optional<String> windowScoreVar = Optional.empty();
+    private Optional<SearchService.Cursor> searchAfter = Optional.empty();
+    private long timeoutMillis = 0;
+
+    public SearchRequest(QueryNode queryNode)
+    {
+        this.queryNode = requireNonNull(queryNode);
+    }
+
+    public SearchRequest(SearchRequest request)
+    {
+        this.queryNode = request.queryNode;
+        this.maxHits = request.maxHits;
+        this.fields = request.fields;
+        this.scoreVar = request.scoreVar;
+        this.origin = request.origin;
+        this.rescoreWindow = request.rescoreWindow;
+        this.windowScoreVar = request.windowScoreVar;
+        this.searchAfter = request.searchAfter;
+        this.timeoutMillis = request.timeoutMillis;
+    }
+
+    public QueryNode getQueryNode()
+    {
+        return queryNode;
+    }
+
+    public int getMaxHits()
+    {
+        return maxHits;
+    }
+
+    public SearchRequest setMaxHits(int maxHits)
+    {
+        checkArgument(maxHits > 0);
+        this.maxHits = maxHits;
+        return this;
+    }
+
+    public Set<String> getFields()
+    {
+        return fields;
+    }
+
+    /**
+     * Subset of {@link SearchService.Doc#FIELDS} to hydrate. An empty set skips loading stored fields entirely and
+     * returns hits carrying only docIds and scores.
+     */
+    public SearchRequest setFields(Set<String> fields)
+    {
+        this.fields = ImmutableSet.copyOf(fields);
+        return this;
+    }
+
+    public String getScoreVar()
+    {
+        return scoreVar;
+    }
+
+    /**
+     * Float score var hits are ranked by.
+     */
+    public SearchRequest setScoreVar(String scoreVar)
+    {
+        this.scoreVar = requireNonNull(scoreVar);
+        return this;
+    }
+
+    public Optional<Point> getOrigin()
+    {
+        return origin;
+    }
+
+    /**
+     * Seeds the origin score var, which distance based score vars such as proximity measure from.
+     */
+    public SearchRequest setOrigin(Point origin)
+    {
+        this.origin = Optional.of(origin);
+        return this;
+    }
+
+    public int getRescoreWindow()
+    {
+        return rescoreWindow;
+    }
+
+    /**
+     * Evaluates the score var only on the best rescoreWindow docs of each segment as ranked by the query's own
+     * Lucene score, or by the window score var when set. Zero evaluates it on every matching doc.
+     */
+    public SearchRequest setRescoreWindow(int rescoreWindow)
+    {
+        checkArgument(rescoreWindow >= 0);
+        this.rescoreWindow = rescoreWindow;
+        return this;
+    }
+
+    public Optional<String> getWindowScoreVar()
+    {
+        return windowScoreVar;
+    }
+
+    /**
+     * Cheap float score var selecting the rescore window in place of the query's Lucene score.
+     */
+    public SearchRequest setWindowScoreVar(String windowScoreVar)
+    {
+        this.windowScoreVar = Optional.of(windowScoreVar);
+        return this;
+    }
+
+    public Optional<SearchService.Cursor> getSearchAfter()
+    {
+        return searchAfter;
+    }
+
+    /**
+     * Returns only the hits ranked strictly after the cursor. Not supported with a rescore window, whose per-segment
+     * windows are not ordered by the final score.
+     */
+    public SearchRequest setSearchAfter(SearchService.Cursor searchAfter)
+    {
+        this.searchAfter = Optional.of(searchAfter);
+        return this;
+    }
+
+    public long getTimeoutMillis()
+    {
+        return timeoutMillis;
+    }
+
+    /**
+     * Fails the search with a SearchTimeoutException once it has run, including any time spent queued, for longer
+     * than timeoutMillis. Zero never times out. The clock is checked as each segment starts and then every few hundred
+     * docs, so a search overruns its timeout by at most that much scoring, and concurrent segment scoring is kept.
+     */
+    public SearchRequest setTimeoutMillis(long timeoutMillis)
+    {
+        checkArgument(timeoutMillis >= 0);
+        this.timeoutMillis = timeoutMillis;
+        return this;
+    }
+}
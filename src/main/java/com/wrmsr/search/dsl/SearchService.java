@@ -15,26 +15,63 @@ package com.wrmsr.search.dsl;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.common.collect.ImmutableSet;
 import com.wrmsr.search.dsl.query.node.QueryNode;
+import com.wrmsr.search.dsl.util.Point;
 
+import java.io.Closeable;
 import java.io.IOException;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 public interface SearchService
+        extends Closeable
 {
     class Doc
     {
+        public static final Set<String> FIELDS = ImmutableSet.of("title", "isbn", "year", "location");
+
         private final String title;
         private final String isbn;
+        private final Integer year;
+        private final Point location;
 
         @JsonCreator
         public Doc(
                 @JsonProperty("title") String title,
-                @JsonProperty("isbn") String isbn)
+                @JsonProperty("isbn") String isbn,
+                @JsonProperty("year") Integer year,
+                @JsonProperty("location") Point location)
         {
             this.title = title;
             this.isbn = isbn;
+            this.year = year;
+            this.location = location;
+        }
+
+        /**
+         * Builds a doc from values of {@link #FIELDS} by name, converting numbers to the type of the doc's property.
+         * Fields without a value are left null.
+         */
+        public static Doc fromValues(Map<String, ?> values)
+        {
+            Number year = (Number) values.get("year");
+            return new Doc((String) values.get("title"), (String) values.get("isbn"), year != null ? year.intValue() : null, (Point) values.get("location"));
+        }
+
+        public Doc(String title, String isbn, Integer year)
+        {
+            this(title, isbn, year, null);
+        }
+
+        public Doc(String title, String isbn)
+        {
+            this(title, isbn, null);
         }
 
         @JsonProperty("title")
@@ -49,6 +86,37 @@ public interface SearchService
             return isbn;
         }
 
+        @JsonProperty("year")
+        public Integer getYear()
+        {
+            return year;
+        }
+
+        @JsonProperty("location")
+        public Point getLocation()
+        {
+            return location;
+        }
+
+        /**
+         * The value of one of {@link #FIELDS} by name.
+         */
+        public Object getValue(String field)
+        {
+            switch (field) {
+                case "title":
+                    return title;
+                case "isbn":
+                    return isbn;
+                case "year":
+                    return year;
+                case "location":
+                    return location;
+                default:
+                    throw new IllegalArgumentException("unknown field: " + field);
+            }
+        }
+
         @Override
         public boolean equals(Object o)
         {
@@ -60,13 +128,15 @@ public interface SearchService
             }
             Doc doc = (Doc) o;
             return Objects.equals(title, doc.title) &&
-                    Objects.equals(isbn, doc.isbn);
+                    Objects.equals(isbn, doc.isbn) &&
+                    Objects.equals(year, doc.year) &&
+                    Objects.equals(location, doc.location);
         }
 
         @Override
         public int hashCode()
         {
-            return Objects.hash(title, isbn);
+            return Objects.hash(title, isbn, year, location);
         }
 
         @Override
@@ -75,6 +145,8 @@ public interface SearchService
             return "Doc{" +
                     "title='" + title + '\'' +
                     ", isbn='" + isbn + '\'' +
+                    ", year=" + year +
+                    ", location=" + location +
                     '}';
         }
     }
@@ -82,23 +154,104 @@ public interface SearchService
     void addDoc(Doc doc)
             throws IOException;
 
+    class AddDocsResult
+    {
+        private final long docCount;
+        private final long elapsedNanos;
+
+        @JsonCreator
+        public AddDocsResult(
+                @JsonProperty("docCount") long docCount,
+                @JsonProperty("elapsedNanos") long elapsedNanos)
+        {
+            this.docCount = docCount;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        @JsonProperty("docCount")
+        public long getDocCount()
+        {
+            return docCount;
+        }
+
+        @JsonProperty("elapsedNanos")
+        public long getElapsedNanos()
+        {
+            return elapsedNanos;
+        }
+
+        @JsonProperty("docsPerSecond")
+        public double getDocsPerSecond()
+        {
+            return elapsedNanos > 0 ? docCount * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos : 0.0;
+        }
+
+        @Override
+        public String toString()
+        {
+            return "AddDocsResult{" +
+                    "docCount=" + docCount +
+                    ", elapsedNanos=" + elapsedNanos +
+                    ", docsPerSecond=" + getDocsPerSecond() +
+                    '}';
+        }
+    }
+
+    /**
+     * Adds docs concurrently on the configured indexing threads. Like addDoc, the docs are not visible to searches
+     * until the next refresh or commit.
+     */
+    AddDocsResult addDocs(Iterable<Doc> docs)
+            throws IOException;
+
+    /**
+     * Adds docs on the index request thread, failing with a RejectedExecutionException when its queue is full.
+     */
+    CompletableFuture<AddDocsResult> addDocsAsync(Iterable<Doc> docs);
+
+    /**
+     * Durably commits all added docs and makes them visible to searches.
+     */
     void commit()
             throws IOException;
 
+    /**
+     * Commits on the index request thread, after any index operations queued before it.
+     */
+    CompletableFuture<Void> commitAsync();
+
+    /**
+     * Makes all added docs visible to searches without committing them.
+     */
+    void refresh()
+            throws IOException;
+
     class Hit
     {
+        private final int docId;
         private final Doc doc;
         private final float score;
 
         @JsonCreator
         public Hit(
+                @JsonProperty("docId") int docId,
                 @JsonProperty("doc") Doc doc,
                 @JsonProperty("score") float score)
         {
+            this.docId = docId;
             this.doc = doc;
             this.score = score;
         }
 
+        @JsonProperty("docId")
+        public int getDocId()
+        {
+            return docId;
+        }
+
+        /**
+         * Null when the search requested no fields.
+         */
         @JsonProperty("doc")
         public Doc getDoc()
         {
@@ -111,6 +264,14 @@ public interface SearchService
             return score;
         }
 
+        /**
+         * The position just past this hit, from which a following search resumes.
+         */
+        public Cursor toCursor()
+        {
+            return new Cursor(score, docId);
+        }
+
         @Override
         public boolean equals(Object o)
         {
@@ -121,26 +282,127 @@ public interface SearchService
                 return false;
             }
             Hit hit = (Hit) o;
-            return Float.compare(hit.score, score) == 0 &&
+            return docId == hit.docId &&
+                    Float.compare(hit.score, score) == 0 &&
                     Objects.equals(doc, hit.doc);
         }
 
         @Override
         public int hashCode()
         {
-            return Objects.hash(doc, score);
+            return Objects.hash(docId, doc, score);
         }
 
         @Override
         public String toString()
         {
             return "Hit{" +
-                    "doc=" + doc +
+                    "docId=" + docId +
+                    ", doc=" + doc +
                     ", score=" + score +
                     '}';
         }
     }
 
+    /**
+     * A position in the results of a search, which are ordered by descending score and then ascending docId. DocIds
+     * are only stable while the index is unchanged, so a cursor taken before a refresh may skip or repeat hits which
+     * were renumbered by a merge.
+     */
+    class Cursor
+    {
+        private final float score;
+        private final int docId;
+
+        @JsonCreator
+        public Cursor(
+                @JsonProperty("score") float score,
+                @JsonProperty("docId") int docId)
+        {
+            this.score = score;
+            this.docId = docId;
+        }
+
+        @JsonProperty("score")
+        public float getScore()
+        {
+            return score;
+        }
+
+        @JsonProperty("docId")
+        public int getDocId()
+        {
+            return docId;
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            Cursor cursor = (Cursor) o;
+            return docId == cursor.docId &&
+                    Float.compare(cursor.score, score) == 0;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return Objects.hash(score, docId);
+        }
+
+        @Override
+        public String toString()
+        {
+            return "Cursor{" +
+                    "score=" + score +
+                    ", docId=" + docId +
+                    '}';
+        }
+    }
+
+    /**
+     * Hits of a scroll, which holds the index open until it is exhausted or closed.
+     */
+    interface Scroll
+            extends Iterator<Hit>, Closeable
+    {
+        @Override
+        void close();
+    }
+
+    List<Hit> search(SearchRequest request)
+            throws IOException;
+
+    /**
+     * Searches on a request thread. The future fails with a RejectedExecutionException when the request queue is
+     * full, and with a SearchTimeoutException when the request's timeout passes while it is queued or scoring.
+     */
+    CompletableFuture<List<Hit>> searchAsync(SearchRequest request);
+
+    /**
+     * Iterates over every hit of the request from its search after cursor onwards, searching and hydrating one page
+     * of maxHits hits at a time only as the iteration reaches it. Each page is collected by a queue of maxHits
+     * entries, so memory stays bounded however deep the iteration goes. Every page is searched against the index as
+     * it was when the scroll began, so commits made meanwhile neither skip nor repeat hits; close a scroll which is
+     * abandoned before its end to release that index.
+     */
+    Scroll scroll(SearchRequest request);
+
+    /**
+     * Searches hydrating every field of {@link Doc#FIELDS}.
+     */
     List<Hit> searchDocs(QueryNode queryNode, int maxHits)
             throws IOException;
+
+    /**
+     * Searches hydrating only the given subset of {@link Doc#FIELDS}, leaving the others null. An empty set skips
+     * loading stored fields entirely and returns hits carrying only docIds and scores.
+     */
+    List<Hit> searchDocs(QueryNode queryNode, int maxHits, Set<String> fields)
+            throws IOException;
 }
@@ -14,119 +14,399 @@
 package com.wrmsr.search.dsl;
 
 import com.google.common.base.Throwables;
-import com.google.common.collect.ImmutableList;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.inject.Inject;
 import com.google.inject.Injector;
 import com.google.inject.Key;
-import com.google.inject.TypeLiteral;
+import com.google.inject.name.Named;
+import com.wrmsr.search.dsl.field.StringFieldSource;
+import com.wrmsr.search.dsl.lucene.CachingLuceneQueryCompiler;
+import com.wrmsr.search.dsl.lucene.FilterCache;
 import com.wrmsr.search.dsl.lucene.LuceneQueryCompiler;
 import com.wrmsr.search.dsl.lucene.QueryTermRenderer;
 import com.wrmsr.search.dsl.query.node.QueryNode;
+import com.wrmsr.search.dsl.scoring.ScoreVarProfiler;
 import com.wrmsr.search.dsl.scoring.ScoreVars;
+import com.wrmsr.search.dsl.util.FloatSupplier;
+import com.wrmsr.search.dsl.util.Point;
 import com.wrmsr.search.dsl.util.ScopeListeners;
 import org.apache.lucene.analysis.Analyzer;
 import org.apache.lucene.analysis.standard.StandardAnalyzer;
-import org.apache.lucene.document.Document;
-import org.apache.lucene.document.Field;
 import org.apache.lucene.document.FieldType;
-import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.IndexWriterConfig;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.store.AlreadyClosedException;
 import org.apache.lucene.store.Directory;
-import org.apache.lucene.store.RAMDirectory;
 import org.apache.lucene.util.Version;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
-import java.util.function.Supplier;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkState;
 
 class SearchServiceImpl
         implements SearchService
 {
+    private static final Logger log = Logger.getLogger(SearchServiceImpl.class.getName());
+
     private final Injector injector;
     private final SearchScope searchScope;
     private final ScopeListeners<SearchScope> searchScopeListeners;
+    private final SearchExecutor searchExecutor;
+    private final SearchMetrics searchMetrics;
 
     private final Analyzer analyzer = new StandardAnalyzer(Version.LUCENE_4_9);
-    private final Directory directory = new RAMDirectory();
+    private final LuceneQueryCompiler queryCompiler;
+    private final Optional<ResultCache> resultCache;
+    private final Map<String, FieldType.NumericType> numericFieldTypes;
+    private final Set<String> pointFields;
+    private final Directory directory;
 
-    private final ReadWriteLock indexSearcherLock = new ReentrantReadWriteLock();
+    private final Object refreshLock = new Object();
 
-    private volatile Optional<IndexWriter> indexWriter = Optional.empty();
-    private volatile Optional<IndexSearcher> indexSearcher = Optional.empty();
+    private final IndexWriter indexWriter;
+    // holds one reference to the current searcher's reader on top of those held by in-flight searches, null once closed
+    private final AtomicReference<IndexSearcher> indexSearcher = new AtomicReference<>();
+    // readers opened and not yet closed, including those swapped out but still held by searches or scrolls
+    private final AtomicInteger openReaders = new AtomicInteger();
 
-    private static final FieldType FIELD_TYPE = new FieldType();
+    private final Optional<ScheduledExecutorService> refreshExecutor;
 
-    static {
-        FIELD_TYPE.setIndexed(true);
-        FIELD_TYPE.setStored(true);
-        FIELD_TYPE.setTokenized(true);
-        FIELD_TYPE.freeze();
-    }
+    private final int indexThreads;
+    private final Optional<ExecutorService> indexExecutor;
+    private final ThreadLocal<DocumentBuilder> documentBuilders;
+
+    private final ExecutorService requestExecutor;
+    private final ExecutorService indexRequestExecutor;
+
+    private static final int INDEX_BATCH_SIZE = 256;
 
     @Inject
     public SearchServiceImpl(
             Injector injector,
             SearchScope searchScope,
-            ScopeListeners<SearchScope> searchScopeListeners)
+            ScopeListeners<SearchScope> searchScopeListeners,
+            Map<String, StringFieldSource> stringFieldSources,
+            Map<String, FieldType.NumericType> numericFieldTypes,
+            @Named("pointFields") Set<String> pointFields,
+            SearchExecutor searchExecutor,
+            SearchMetrics searchMetrics,
+            ScoreVarProfiler scoreVarProfiler,
+            SearchConfig config,
+            Directory directory)
+            throws IOException
     {
         this.injector = injector;
         this.searchScope = searchScope;
         this.searchScopeListeners = searchScopeListeners;
+        this.searchExecutor = searchExecutor;
+        this.searchMetrics = searchMetrics;
+        this.directory = directory;
+        this.indexThreads = config.getIndexThreads();
+        this.numericFieldTypes = numericFieldTypes;
+        this.pointFields = pointFields;
+
+        Optional<FilterCache> filterCache = config.getFilterCacheBytes() > 0 ? Optional.of(new FilterCache(config.getFilterCacheBytes())) : Optional.empty();
+        filterCache.ifPresent(c -> searchMetrics.exportFilterCacheStats(c::getStats));
+        if (config.getQueryCacheSize() > 0) {
+            CachingLuceneQueryCompiler cachingQueryCompiler = new CachingLuceneQueryCompiler(analyzer, new QueryTermRenderer(), numericFieldTypes, filterCache, config.getQueryCacheSize());
+            searchMetrics.exportQueryCacheStats(cachingQueryCompiler::getQueryCacheStats);
+            searchMetrics.exportTokenCacheStats(cachingQueryCompiler::getTokenCacheStats);
+            queryCompiler = cachingQueryCompiler;
+        }
+        else {
+            queryCompiler = new LuceneQueryCompiler(analyzer, new QueryTermRenderer(), numericFieldTypes, filterCache);
+        }
+
+        resultCache = config.getResultCacheWeight() > 0 ? Optional.of(new ResultCache(config.getResultCacheWeight())) : Optional.empty();
+        resultCache.ifPresent(c -> searchMetrics.exportResultCacheStats(c::getStats));
+        if (scoreVarProfiler.isEnabled()) {
+            searchMetrics.exportScoreVarProfile(scoreVarProfiler::getProfile);
+        }
+
+        documentBuilders = ThreadLocal.withInitial(() -> new DocumentBuilder(stringFieldSources, numericFieldTypes, pointFields));
+        if (indexThreads > 1) {
+            indexExecutor = Optional.of(Executors.newFixedThreadPool(
+                    indexThreads,
+                    new ThreadFactoryBuilder().setNameFormat("search-index-%d").setDaemon(true).build()));
+        }
+        else {
+            indexExecutor = Optional.empty();
+        }
+
+        requestExecutor = newRequestExecutor(config.getRequestThreads(), config.getRequestQueueSize(), "search-request-%d");
+        indexRequestExecutor = newRequestExecutor(1, config.getIndexRequestQueueSize(), "search-index-request-%d");
+
+        // appends to an index already present in the directory, so an on-disk service restarts without re-ingesting
+        IndexWriterConfig indexWriterConfig = new IndexWriterConfig(Version.LUCENE_4_9, analyzer)
+                .setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND)
+                .setMaxThreadStates(Math.max(indexThreads, IndexWriterConfig.DEFAULT_MAX_THREAD_STATES));
+        indexWriter = new IndexWriter(directory, indexWriterConfig);
+        indexSearcher.set(newIndexSearcher(DirectoryReader.open(indexWriter, true)));
+
+        if (config.getRefreshIntervalMillis() > 0) {
+            ScheduledExecutorService refreshExecutor = Executors.newSingleThreadScheduledExecutor(
+                    new ThreadFactoryBuilder().setNameFormat("search-refresh-%d").setDaemon(true).build());
+            refreshExecutor.scheduleWithFixedDelay(() -> {
+                try {
+                    refresh();
+                }
+                catch (Exception e) {
+                    log.log(Level.WARNING, "Index refresh failed", e);
+                }
+            }, config.getRefreshIntervalMillis(), config.getRefreshIntervalMillis(), TimeUnit.MILLISECONDS);
+            this.refreshExecutor = Optional.of(refreshExecutor);
+        }
+        else {
+            this.refreshExecutor = Optional.empty();
+        }
+    }
+
+    private static ExecutorService newRequestExecutor(int threads, int queueSize, String nameFormat)
+    {
+        // requests beyond the queue are rejected rather than piling up, a zero sized queue only hands off to idle threads
+        BlockingQueue<Runnable> queue = queueSize > 0 ? new ArrayBlockingQueue<>(queueSize) : new SynchronousQueue<>();
+        return new ThreadPoolExecutor(
+                threads,
+                threads,
+                0L,
+                TimeUnit.MILLISECONDS,
+                queue,
+                new ThreadFactoryBuilder().setNameFormat(nameFormat).setDaemon(true).build());
+    }
+
+    private <T> CompletableFuture<T> submit(ExecutorService executor, Callable<T> task)
+    {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        try {
+            executor.execute(() -> {
+                if (future.isDone()) {
+                    return;
+                }
+                // requests still queued when the service closes fail rather than run against it
+                if (indexSearcher.get() == null) {
+                    future.completeExceptionally(new AlreadyClosedException("search service is closed"));
+                    return;
+                }
+                try {
+                    future.complete(task.call());
+                }
+                catch (Throwable e) {
+                    future.completeExceptionally(e);
+                }
+            });
+        }
+        catch (RejectedExecutionException e) {
+            searchMetrics.recordRejection();
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    @Override
+    public void addDoc(Doc doc)
+            throws IOException
+    {
+        indexWriter.addDocument(documentBuilders.get().build(doc));
     }
 
     @Override
-    public synchronized void addDoc(Doc doc)
+    public AddDocsResult addDocs(Iterable<Doc> docs)
             throws IOException
     {
-        if (!this.indexWriter.isPresent()) {
-            IndexWriterConfig indexWriterConfig = new IndexWriterConfig(Version.LUCENE_4_9, analyzer);
-            IndexWriter indexWriter = new IndexWriter(directory, indexWriterConfig);
-            this.indexWriter = Optional.of(indexWriter);
+        long startNanos = System.nanoTime();
+        Iterator<Doc> iterator = docs.iterator();
+        AtomicLong docCount = new AtomicLong();
+        AtomicBoolean failed = new AtomicBoolean();
+
+        if (indexExecutor.isPresent()) {
+            List<Future<?>> futures = new ArrayList<>(indexThreads);
+            for (int i = 0; i < indexThreads; ++i) {
+                futures.add(indexExecutor.get().submit(() -> {
+                    indexDocs(iterator, docCount, failed);
+                    return null;
+                }));
+            }
+            try {
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+            }
+            catch (InterruptedException e) {
+                failed.set(true);
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException();
+            }
+            catch (ExecutionException e) {
+                Throwables.propagateIfInstanceOf(e.getCause(), IOException.class);
+                throw Throwables.propagate(e.getCause());
+            }
+        }
+        else {
+            indexDocs(iterator, docCount, failed);
         }
 
-        IndexWriter indexWriter = this.indexWriter.get();
-        Document document = new Document();
-        document.add(new Field("title", doc.getTitle(), FIELD_TYPE));
-        document.add(new Field("isbn", doc.getIsbn(), FIELD_TYPE));
-        indexWriter.addDocument(document);
+        return new AddDocsResult(docCount.get(), System.nanoTime() - startNanos);
     }
 
     @Override
-    public synchronized void commit()
-            throws IOException
+    public CompletableFuture<AddDocsResult> addDocsAsync(Iterable<Doc> docs)
     {
-        checkState(this.indexWriter.isPresent());
+        return submit(indexRequestExecutor, () -> addDocs(docs));
+    }
 
-        Lock lock = indexSearcherLock.writeLock();
+    private void indexDocs(Iterator<Doc> iterator, AtomicLong docCount, AtomicBoolean failed)
+            throws IOException
+    {
+        DocumentBuilder documentBuilder = documentBuilders.get();
+        List<Doc> batch = new ArrayList<>(INDEX_BATCH_SIZE);
         try {
-            lock.lock();
+            while (!failed.get()) {
+                // pull docs in batches so indexing threads rarely contend on the shared iterator
+                synchronized (iterator) {
+                    while (batch.size() < INDEX_BATCH_SIZE && iterator.hasNext()) {
+                        batch.add(iterator.next());
+                    }
+                }
+                if (batch.isEmpty()) {
+                    return;
+                }
+                for (Doc doc : batch) {
+                    indexWriter.addDocument(documentBuilder.build(doc));
+                }
+                docCount.addAndGet(batch.size());
+                batch.clear();
+            }
+        }
+        catch (IOException | RuntimeException e) {
+            failed.set(true);
+            throw e;
+        }
+    }
 
-            if (this.indexSearcher.isPresent()) {
-                IndexSearcher indexSearcher = this.indexSearcher.get();
-                indexSearcher.getIndexReader().close();
-                this.indexSearcher = Optional.empty();
+    @Override
+    public void commit()
+            throws IOException
+    {
+        indexWriter.commit();
+        refresh();
+    }
+
+    @Override
+    public CompletableFuture<Void> commitAsync()
+    {
+        return submit(indexRequestExecutor, () -> {
+            commit();
+            return null;
+        });
+    }
+
+    @Override
+    public void refresh()
+            throws IOException
+    {
+        synchronized (refreshLock) {
+            IndexSearcher currentSearcher = indexSearcher.get();
+            if (currentSearcher == null) {
+                throw new AlreadyClosedException("search service is closed");
+            }
+            // the reopened reader shares every unchanged segment with the current one
+            DirectoryReader currentReader = (DirectoryReader) currentSearcher.getIndexReader();
+            DirectoryReader newReader = DirectoryReader.openIfChanged(currentReader, indexWriter, true);
+            if (newReader == null) {
+                return;
             }
+            // searches already running keep the old reader open until they release it, new ones see the new searcher
+            indexSearcher.set(newIndexSearcher(newReader));
+            resultCache.ifPresent(ResultCache::invalidateAll);
+            currentReader.decRef();
+        }
+    }
 
-            IndexWriter indexWriter = this.indexWriter.get();
-            indexWriter.commit();
-            indexWriter.close();
+    @Override
+    public void close()
+            throws IOException
+    {
+        refreshExecutor.ifPresent(ExecutorService::shutdownNow);
+        IndexSearcher currentSearcher;
+        synchronized (refreshLock) {
+            // new searches fail to acquire a searcher from here on, those already running keep theirs
+            currentSearcher = indexSearcher.getAndSet(null);
+        }
+        if (currentSearcher == null) {
+            return;
+        }
 
-            IndexReader indexReader = IndexReader.open(directory);
-            IndexSearcher indexSearcher = new IndexSearcher(indexReader);
-            this.indexSearcher = Optional.of(indexSearcher);
+        // queued requests see the service closed and fail, running ones are waited for
+        requestExecutor.shutdown();
+        indexRequestExecutor.shutdown();
+        try {
+            requestExecutor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+            indexRequestExecutor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
         }
         finally {
-            lock.unlock();
+            indexExecutor.ifPresent(ExecutorService::shutdown);
+            indexWriter.close();
+            // the directory closes along with the last reader, which a search or scroll may still be holding
+            currentSearcher.getIndexReader().decRef();
+            searchMetrics.close();
+        }
+    }
+
+    private IndexSearcher newIndexSearcher(DirectoryReader reader)
+    {
+        openReaders.incrementAndGet();
+        reader.addReaderClosedListener(r -> releaseReader());
+        return searchExecutor.newIndexSearcher(reader);
+    }
+
+    private void releaseReader()
+    {
+        // the current reader stays open until close has cleared it, so this only reaches zero after close
+        if (openReaders.decrementAndGet() == 0 && indexSearcher.get() == null) {
+            try {
+                directory.close();
+            }
+            catch (IOException e) {
+                log.log(Level.WARNING, "Closing index directory failed", e);
+            }
         }
     }
 
@@ -134,36 +414,186 @@ class SearchServiceImpl
     public List<Hit> searchDocs(QueryNode queryNode, int maxHits)
             throws IOException
     {
-        Query query = new LuceneQueryCompiler(analyzer, new QueryTermRenderer()).compileQuery(queryNode);
-        // Supplier<Float> scoreSupplier = () -> 100.0f;
+        return searchDocs(queryNode, maxHits, Doc.FIELDS);
+    }
+
+    @Override
+    public List<Hit> searchDocs(QueryNode queryNode, int maxHits, Set<String> fields)
+            throws IOException
+    {
+        return search(new SearchRequest(queryNode).setMaxHits(maxHits).setFields(fields));
+    }
+
+    @Override
+    public List<Hit> search(SearchRequest request)
+            throws IOException
+    {
+        return search(request, Deadline.afterMillis(request.getTimeoutMillis()));
+    }
+
+    @Override
+    public CompletableFuture<List<Hit>> searchAsync(SearchRequest request)
+    {
+        // the deadline starts at submission so time spent queued counts against it
+        SearchRequest snapshot = new SearchRequest(request);
+        Deadline deadline = Deadline.afterMillis(snapshot.getTimeoutMillis());
+        return submit(requestExecutor, () -> search(snapshot, deadline));
+    }
 
-        Lock lock = indexSearcherLock.readLock();
+    private List<Hit> search(SearchRequest request, Deadline deadline)
+            throws IOException
+    {
+        return search(request, Optional.empty(), deadline);
+    }
+
+    /**
+     * Searches the held searcher if there is one, and otherwise the current one.
+     */
+    private List<Hit> search(SearchRequest request, Optional<IndexSearcher> heldSearcher, Deadline deadline)
+            throws IOException
+    {
+        SearchMetrics.Timer timer = searchMetrics.startTimer();
         try {
-            lock.lock();
+            return search(request, heldSearcher, deadline, timer);
+        }
+        catch (SearchTimeoutException e) {
+            searchMetrics.recordTimeout();
+            throw e;
+        }
+        finally {
+            timer.finish();
+        }
+    }
 
-            checkState(this.indexSearcher.isPresent());
-            IndexSearcher indexSearcher = this.indexSearcher.get();
+    @Override
+    public Scroll scroll(SearchRequest request)
+    {
+        SearchRequest pageRequest = new SearchRequest(request);
+        checkArgument(pageRequest.getRescoreWindow() == 0, "cannot scroll with a rescore window");
+        // docIds are only stable within one reader, so every page is searched against the one the scroll began on
+        IndexSearcher heldSearcher = acquireSearcher();
+        return new Scroll()
+        {
+            private final AtomicBoolean released = new AtomicBoolean();
+            private final Iterator<Hit> iterator = new AbstractIterator<Hit>()
+            {
+                private Iterator<Hit> page = Collections.emptyIterator();
+                private boolean lastPage;
+
+                @Override
+                protected Hit computeNext()
+                {
+                    if (!page.hasNext()) {
+                        if (lastPage) {
+                            close();
+                            return endOfData();
+                        }
+                        checkState(!released.get(), "scroll is closed");
+                        List<Hit> hits;
+                        try {
+                            hits = search(pageRequest, Optional.of(heldSearcher), Deadline.afterMillis(pageRequest.getTimeoutMillis()));
+                        }
+                        catch (IOException e) {
+                            throw Throwables.propagate(e);
+                        }
+                        lastPage = hits.size() < pageRequest.getMaxHits();
+                        if (hits.isEmpty()) {
+                            close();
+                            return endOfData();
+                        }
+                        pageRequest.setSearchAfter(hits.get(hits.size() - 1).toCursor());
+                        page = hits.iterator();
+                    }
+                    return page.next();
+                }
+            };
+
+            @Override
+            public boolean hasNext()
+            {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public Hit next()
+            {
+                return iterator.next();
+            }
+
+            @Override
+            public void close()
+            {
+                if (released.compareAndSet(false, true)) {
+                    try {
+                        heldSearcher.getIndexReader().decRef();
+                    }
+                    catch (IOException e) {
+                        throw Throwables.propagate(e);
+                    }
+                }
+            }
+        };
+    }
+
+    private List<Hit> search(SearchRequest request, Optional<IndexSearcher> heldSearcher, Deadline deadline, SearchMetrics.Timer timer)
+            throws IOException
+    {
+        checkArgument(request.getRescoreWindow() == 0 || !request.getSearchAfter().isPresent(), "cannot search after a cursor with a rescore window");
+        deadline.check();
+        // a held searcher is already referenced by its holder, so it is safe to take another reference to it
+        IndexSearcher indexSearcher = heldSearcher.isPresent() ? incRef(heldSearcher.get()) : acquireSearcher();
+        try {
+            timer.mark(SearchPhase.ACQUIRE);
+
+            // the cache is keyed on the request's QueryNode, so a hit skips compiling it
+            long readerVersion = ((DirectoryReader) indexSearcher.getIndexReader()).getVersion();
+            if (resultCache.isPresent()) {
+                Optional<List<Hit>> cachedHits = resultCache.get().get(request, readerVersion);
+                if (cachedHits.isPresent()) {
+                    searchMetrics.recordCachedSearch();
+                    return cachedHits.get();
+                }
+            }
+
+            HitHydrator hitHydrator = new HitHydrator(request.getFields(), numericFieldTypes, pointFields);
+            Query query = queryCompiler.compileQuery(request.getQueryNode());
+            timer.mark(SearchPhase.COMPILE);
 
             searchScope.enter();
             try {
                 searchScope.seed(Key.get(IndexSearcher.class), indexSearcher);
+                if (request.getOrigin().isPresent()) {
+                    searchScope.seed(Key.get(Point.class, ScoreVars.scoreVar("origin")), request.getOrigin().get());
+                }
                 searchScopeListeners.enter();
                 try {
                     final Searcher searcher = injector.getInstance(Searcher.class);
 
-                    final Supplier<Float> scoreSupplier = injector.getInstance(Key.get(new TypeLiteral<Supplier<Float>>() {}, ScoreVars.scoreVar("static_weird_score")));
+                    final Key<FloatSupplier> scoreSupplierKey = Key.get(FloatSupplier.class, ScoreVars.scoreVar(request.getScoreVar()));
+                    timer.mark(SearchPhase.SCOPE_SETUP);
 
-                    ScoreDoc[] scoreDocs = searcher.search(query, scoreSupplier, maxHits);
+                    final TopDocs topDocs;
+                    if (request.getRescoreWindow() > 0) {
+                        Optional<Key<FloatSupplier>> windowScoreSupplierKey = request.getWindowScoreVar().map(v -> Key.get(FloatSupplier.class, ScoreVars.scoreVar(v)));
+                        topDocs = searcher.rescore(query, windowScoreSupplierKey, scoreSupplierKey, request.getRescoreWindow(), request.getMaxHits(), deadline);
+                    }
+                    else if (request.getSearchAfter().isPresent()) {
+                        Cursor after = request.getSearchAfter().get();
+                        topDocs = searcher.searchAfter(new ScoreDoc(after.getDocId(), after.getScore()), query, scoreSupplierKey, request.getMaxHits(), deadline);
+                    }
+                    else {
+                        topDocs = searcher.search(query, scoreSupplierKey, request.getMaxHits(), deadline);
+                    }
+                    timer.mark(SearchPhase.SCORING);
 
-                    ImmutableList.Builder<Hit> builder = ImmutableList.builder();
-                    for (int i = 0; i < scoreDocs.length; ++i) {
-                        ScoreDoc scoreDoc = scoreDocs[i];
-                        Document document = indexSearcher.doc(scoreDoc.doc);
-                        Doc doc = new Doc(document.get("title"), document.get("isbn"));
-                        Hit hit = new Hit(doc, scoreDoc.score);
-                        builder.add(hit);
+                    List<Hit> hits = hitHydrator.hydrate(indexSearcher.getIndexReader(), topDocs.scoreDocs);
+                    timer.mark(SearchPhase.HYDRATION);
+                    searchMetrics.recordSearch(hits.size(), topDocs.totalHits);
+                    // hits from a searcher swapped out mid-search could never be looked up again
+                    if (this.indexSearcher.get() == indexSearcher) {
+                        resultCache.ifPresent(c -> c.put(request, readerVersion, hits));
                     }
-                    return builder.build();
+                    return hits;
                 }
                 finally {
                     searchScopeListeners.exit();
@@ -177,7 +607,27 @@ class SearchServiceImpl
             }
         }
         finally {
-            lock.unlock();
+            indexSearcher.getIndexReader().decRef();
         }
     }
+
+    private IndexSearcher acquireSearcher()
+    {
+        while (true) {
+            IndexSearcher indexSearcher = this.indexSearcher.get();
+            if (indexSearcher == null) {
+                throw new AlreadyClosedException("search service is closed");
+            }
+            if (indexSearcher.getIndexReader().tryIncRef()) {
+                return indexSearcher;
+            }
+            // a reader is only closed after it has been swapped out or cleared, so look again
+        }
+    }
+
+    private static IndexSearcher incRef(IndexSearcher indexSearcher)
+    {
+        indexSearcher.getIndexReader().incRef();
+        return indexSearcher;
+    }
 }
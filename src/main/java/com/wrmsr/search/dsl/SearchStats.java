@@ -0,0 +1,314 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wrmsr.search.dsl;
+
+import com.google.common.base.Throwables;
+import com.google.common.cache.CacheStats;
+import com.google.common.collect.ImmutableMap;
+import com.wrmsr.search.dsl.util.Histogram;
+import com.wrmsr.search.dsl.util.InvocationCounter;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import java.lang.management.ManagementFactory;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Histogram backed SearchMetrics, published as an MXBean while exported.
+ */
+public class SearchStats
+        implements SearchMetrics, SearchStatsMXBean
+{
+    private static final AtomicInteger EXPORT_COUNT = new AtomicInteger();
+    private static final Supplier<CacheStats> NO_CACHE_STATS = () -> new CacheStats(0, 0, 0, 0, 0, 0);
+
+    private final Map<SearchPhase, Histogram> phases = new EnumMap<>(SearchPhase.class);
+    private final Histogram hits = new Histogram();
+    private final Histogram docsScored = new Histogram();
+    private final LongAdder cachedSearches = new LongAdder();
+    private final LongAdder rejections = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private volatile Supplier<CacheStats> resultCacheStats = NO_CACHE_STATS;
+    private volatile Supplier<CacheStats> filterCacheStats = NO_CACHE_STATS;
+    private volatile Supplier<CacheStats> queryCacheStats = NO_CACHE_STATS;
+    private volatile Supplier<CacheStats> tokenCacheStats = NO_CACHE_STATS;
+    private volatile Supplier<Map<String, InvocationCounter.Snapshot>> scoreVarProfile = ImmutableMap::of;
+
+    private Optional<ObjectName> objectName = Optional.empty();
+
+    public SearchStats()
+    {
+        for (SearchPhase phase : SearchPhase.values()) {
+            phases.put(phase, new Histogram());
+        }
+    }
+
+    /**
+     * Registers this with the platform MBean server under a name unique to the JVM.
+     */
+    public synchronized SearchStats export()
+    {
+        if (!objectName.isPresent()) {
+            try {
+                ObjectName objectName = new ObjectName("com.wrmsr.search.dsl:type=SearchStats,name=search-" + EXPORT_COUNT.getAndIncrement());
+                ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+                this.objectName = Optional.of(objectName);
+            }
+            catch (JMException e) {
+                throw Throwables.propagate(e);
+            }
+        }
+        return this;
+    }
+
+    public synchronized Optional<ObjectName> getObjectName()
+    {
+        return objectName;
+    }
+
+    @Override
+    public synchronized void close()
+    {
+        if (objectName.isPresent()) {
+            MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+            try {
+                mBeanServer.unregisterMBean(objectName.get());
+            }
+            catch (JMException e) {
+                throw Throwables.propagate(e);
+            }
+            objectName = Optional.empty();
+        }
+    }
+
+    @Override
+    public Timer startTimer()
+    {
+        return new Timer()
+        {
+            private final long startNanos = System.nanoTime();
+            private long lastNanos = startNanos;
+
+            @Override
+            public void mark(SearchPhase phase)
+            {
+                long nanos = System.nanoTime();
+                phases.get(phase).record(nanos - lastNanos);
+                lastNanos = nanos;
+            }
+
+            @Override
+            public void finish()
+            {
+                phases.get(SearchPhase.TOTAL).record(System.nanoTime() - startNanos);
+            }
+        };
+    }
+
+    @Override
+    public void recordSearch(int hits, int docsScored)
+    {
+        this.hits.record(hits);
+        this.docsScored.record(docsScored);
+    }
+
+    @Override
+    public void recordCachedSearch()
+    {
+        cachedSearches.increment();
+    }
+
+    @Override
+    public void recordRejection()
+    {
+        rejections.increment();
+    }
+
+    @Override
+    public void recordTimeout()
+    {
+        timeouts.increment();
+    }
+
+    @Override
+    public void exportResultCacheStats(Supplier<CacheStats> stats)
+    {
+        resultCacheStats = requireNonNull(stats);
+    }
+
+    @Override
+    public void exportFilterCacheStats(Supplier<CacheStats> stats)
+    {
+        filterCacheStats = requireNonNull(stats);
+    }
+
+    @Override
+    public void exportQueryCacheStats(Supplier<CacheStats> stats)
+    {
+        queryCacheStats = requireNonNull(stats);
+    }
+
+    @Override
+    public void exportTokenCacheStats(Supplier<CacheStats> stats)
+    {
+        tokenCacheStats = requireNonNull(stats);
+    }
+
+    @Override
+    public void exportScoreVarProfile(Supplier<Map<String, InvocationCounter.Snapshot>> profile)
+    {
+        scoreVarProfile = requireNonNull(profile);
+    }
+
+    public Histogram.Snapshot getPhase(SearchPhase phase)
+    {
+        return phases.get(phase).getSnapshot();
+    }
+
+    @Override
+    public long getSearches()
+    {
+        return hits.getSnapshot().getCount();
+    }
+
+    @Override
+    public long getCachedSearches()
+    {
+        return cachedSearches.sum();
+    }
+
+    @Override
+    public long getRejections()
+    {
+        return rejections.sum();
+    }
+
+    @Override
+    public long getTimeouts()
+    {
+        return timeouts.sum();
+    }
+
+    @Override
+    public Histogram.Snapshot getCompile()
+    {
+        return getPhase(SearchPhase.COMPILE);
+    }
+
+    @Override
+    public Histogram.Snapshot getAcquire()
+    {
+        return getPhase(SearchPhase.ACQUIRE);
+    }
+
+    @Override
+    public Histogram.Snapshot getScopeSetup()
+    {
+        return getPhase(SearchPhase.SCOPE_SETUP);
+    }
+
+    @Override
+    public Histogram.Snapshot getScoring()
+    {
+        return getPhase(SearchPhase.SCORING);
+    }
+
+    @Override
+    public Histogram.Snapshot getHydration()
+    {
+        return getPhase(SearchPhase.HYDRATION);
+    }
+
+    @Override
+    public Histogram.Snapshot getTotal()
+    {
+        return getPhase(SearchPhase.TOTAL);
+    }
+
+    @Override
+    public Histogram.Snapshot getHits()
+    {
+        return hits.getSnapshot();
+    }
+
+    @Override
+    public Histogram.Snapshot getDocsScored()
+    {
+        return docsScored.getSnapshot();
+    }
+
+    @Override
+    public long getResultCacheHits()
+    {
+        return resultCacheStats.get().hitCount();
+    }
+
+    @Override
+    public long getResultCacheMisses()
+    {
+        return resultCacheStats.get().missCount();
+    }
+
+    @Override
+    public long getFilterCacheHits()
+    {
+        return filterCacheStats.get().hitCount();
+    }
+
+    @Override
+    public long getFilterCacheMisses()
+    {
+        return filterCacheStats.get().missCount();
+    }
+
+    @Override
+    public long getQueryCacheHits()
+    {
+        return queryCacheStats.get().hitCount();
+    }
+
+    @Override
+    public long getQueryCacheMisses()
+    {
+        return queryCacheStats.get().missCount();
+    }
+
+    @Override
+    public long getTokenCacheHits()
+    {
+        return tokenCacheStats.get().hitCount();
+    }
+
+    @Override
+    public long getTokenCacheMisses()
+    {
+        return tokenCacheStats.get().missCount();
+    }
+
+    @Override
+    public Map<String, InvocationCounter.Snapshot> getScoreVarProfile()
+    {
+        // the MXBean mapping rejects sorted maps with an explicit comparator, which ImmutableSortedMap always has
+        return ImmutableMap.copyOf(scoreVarProfile.get());
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wrmsr.search.dsl;
+
+import com.wrmsr.search.dsl.util.Histogram;
+import com.wrmsr.search.dsl.util.InvocationCounter;
+
+import java.util.Map;
+
+/**
+ * Latencies are in nanoseconds.
+ */
+public interface SearchStatsMXBean
+{
+    long getSearches();
+
+    long getCachedSearches();
+
+    long getRejections();
+
+    long getTimeouts();
+
+    Histogram.Snapshot getCompile();
+
+    Histogram.Snapshot getAcquire();
+
+    Histogram.Snapshot getScopeSetup();
+
+    Histogram.Snapshot getScoring();
+
+    Histogram.Snapshot getHydration();
+
+    Histogram.Snapshot getTotal();
+
+    Histogram.Snapshot getHits();
+
+    Histogram.Snapshot getDocsScored();
+
+    long getResultCacheHits();
+
+    long getResultCacheMisses();
+
+    long getFilterCacheHits();
+
+    long getFilterCacheMisses();
+
+    long getQueryCacheHits();
+
+    long getQueryCacheMisses();
+
+    long getTokenCacheHits();
+
+    long getTokenCacheMisses();
+
+    Map<String, InvocationCounter.Snapshot> getScoreVarProfile();
+}
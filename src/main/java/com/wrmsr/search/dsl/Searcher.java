@@ -13,14 +13,34 @@
  */
 package com.wrmsr.search.dsl;
 
+import com.google.inject.Key;
+import com.wrmsr.search.dsl.util.FloatSupplier;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.TopDocs;
 
 import java.io.IOException;
-import java.util.function.Supplier;
+import java.util.Optional;
 
+/**
+ * The total hits of returned TopDocs count the docs the score supplier was evaluated on. Every search fails with a
+ * SearchTimeoutException once its deadline passes.
+ */
 public interface Searcher
 {
-    ScoreDoc[] search(Query query, Supplier<Float> scoreSupplier, int maxHits)
+    TopDocs search(Query query, Key<FloatSupplier> scoreSupplierKey, int maxHits, Deadline deadline)
+            throws IOException;
+
+    /**
+     * Returns the top hits ranked strictly after the given hit, ordering equal scores by ascending docId.
+     */
+    TopDocs searchAfter(ScoreDoc after, Query query, Key<FloatSupplier> scoreSupplierKey, int maxHits, Deadline deadline)
+            throws IOException;
+
+    /**
+     * Ranks only the top rescoreWindow docs of each segment by the score supplier. The window is selected by the
+     * window score supplier when given, and by the query's own Lucene score otherwise.
+     */
+    TopDocs rescore(Query query, Optional<Key<FloatSupplier>> windowScoreSupplierKey, Key<FloatSupplier> scoreSupplierKey, int rescoreWindow, int maxHits, Deadline deadline)
             throws IOException;
 }
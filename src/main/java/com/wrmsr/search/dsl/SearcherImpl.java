@@ -13,39 +13,98 @@
  */
 package com.wrmsr.search.dsl;
 
+import com.google.common.base.Throwables;
 import com.google.inject.Inject;
+import com.google.inject.Key;
+import com.wrmsr.search.dsl.util.FloatSupplier;
+import com.wrmsr.search.dsl.util.SimpleScope;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.ScoreDoc;
-import org.apache.lucene.search.TopDocsCollector;
-import org.apache.lucene.search.TopScoreDocCollector;
+import org.apache.lucene.search.TopDocs;
 
 import java.io.IOException;
-import java.util.Set;
-import java.util.function.Supplier;
+import java.util.Optional;
 
 class SearcherImpl
         implements Searcher
 {
     private final IndexSearcher indexSearcher;
-    private final Set<DocSpecific> docSpecificSet;
+    private final SearchScope searchScope;
+    private final DocScorerPool docScorerPool;
+    private final int scoreBlockSize;
 
     @Inject
     public SearcherImpl(
             IndexSearcher indexSearcher,
-            Set<DocSpecific> docSpecificSet)
+            SearchScope searchScope,
+            DocScorerPool docScorerPool,
+            SearchConfig config)
     {
         this.indexSearcher = indexSearcher;
-        this.docSpecificSet = docSpecificSet;
+        this.searchScope = searchScope;
+        this.docScorerPool = docScorerPool;
+        this.scoreBlockSize = config.getScoreBlockSize();
     }
 
     @Override
-    public ScoreDoc[] search(Query query, Supplier<Float> scoreSupplier, int maxHits)
+    public TopDocs search(Query query, Key<FloatSupplier> scoreSupplierKey, int maxHits, Deadline deadline)
             throws IOException
     {
-        Query scoredQuery = new ComputedScoreQuery(new DocSpecific.Composite(docSpecificSet), scoreSupplier, query);
-        TopDocsCollector topDocsCollector = TopScoreDocCollector.create(maxHits, true);
-        indexSearcher.search(scoredQuery, topDocsCollector);
-        return topDocsCollector.topDocs().scoreDocs;
+        return search(query, scoreSupplierKey, Optional.empty(), maxHits, deadline);
+    }
+
+    @Override
+    public TopDocs searchAfter(ScoreDoc after, Query query, Key<FloatSupplier> scoreSupplierKey, int maxHits, Deadline deadline)
+            throws IOException
+    {
+        return search(query, scoreSupplierKey, Optional.of(after), maxHits, deadline);
+    }
+
+    private TopDocs search(Query query, Key<FloatSupplier> scoreSupplierKey, Optional<ScoreDoc> after, int maxHits, Deadline deadline)
+            throws IOException
+    {
+        try (DocScorerFactory docScorerFactory = new DocScorerFactory(docScorerPool, searchScope.captureSeeds(), scoreSupplierKey)) {
+            // the scorers check the deadline themselves, so it holds however the segments are collected
+            Query scoredQuery = new ComputedScoreQuery(docScorerFactory, query, scoreBlockSize, deadline);
+            if (docScorerPool.isBounded(scoreSupplierKey)) {
+                // bounded scores are collected serially so the bound of each segment is checked against every earlier one
+                BoundedTopScoreCollector collector = new BoundedTopScoreCollector(maxHits, after);
+                indexSearcher.search(scoredQuery, collector);
+                return collector.getTopDocs();
+            }
+            // segments are scored on the searcher's executor when it has one, each scorer with its own DocScorer graph
+            try {
+                return indexSearcher.searchAfter(after.orElse(null), scoredQuery, maxHits);
+            }
+            catch (RuntimeException e) {
+                // the executor rethrows the first failed slice without waiting for the others, which may still be
+                // scoring with their graphs, so none of this search's graphs go back to the pool
+                docScorerFactory.discard();
+                // the executor wraps whatever a concurrently scored segment threw
+                for (Throwable cause : Throwables.getCausalChain(e)) {
+                    if (cause instanceof SearchTimeoutException) {
+                        throw (SearchTimeoutException) cause;
+                    }
+                }
+                throw e;
+            }
+        }
+    }
+
+    @Override
+    public TopDocs rescore(Query query, Optional<Key<FloatSupplier>> windowScoreSupplierKey, Key<FloatSupplier> scoreSupplierKey, int rescoreWindow, int maxHits, Deadline deadline)
+            throws IOException
+    {
+        SimpleScope.Seeds seeds = searchScope.captureSeeds();
+        try (DocScorerFactory windowScorerFactory = new DocScorerFactory(docScorerPool, seeds, windowScoreSupplierKey.orElse(scoreSupplierKey));
+                DocScorerFactory docScorerFactory = new DocScorerFactory(docScorerPool, seeds, scoreSupplierKey)) {
+            Query windowQuery = windowScoreSupplierKey.isPresent() ? new ComputedScoreQuery(windowScorerFactory, query, scoreBlockSize) : query;
+            // collecting into a single collector runs the segments serially, so one graph serves them all
+            RescoringCollector collector = new RescoringCollector(docScorerFactory.get(), rescoreWindow, maxHits);
+            // the window score is checked by the collector along with the rescoring it drives
+            indexSearcher.search(windowQuery, deadline.isBounded() ? new DeadlineCollector(collector, deadline) : collector);
+            return collector.getTopDocs();
+        }
     }
 }
@@ -0,0 +1,75 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wrmsr.search.dsl;
+
+import org.apache.lucene.index.AtomicReaderContext;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.search.IndexSearcher;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * An IndexSearcher which scores its segments concurrently on an executor, grouping small segments into shared slices
+ * so that a many-segment index does not fan out into one task per tiny segment. Slicing happens in the IndexSearcher
+ * constructor, so the limits are constants rather than configuration.
+ *
+ * Segments are grouped largest first to balance the slices, but each slice visits its own segments in docBase order:
+ * the in-order collectors keep the first of equally scored docs, so that order is what breaks ties by docId.
+ */
+final class SlicedIndexSearcher
+        extends IndexSearcher
+{
+    private static final int MAX_DOCS_PER_SLICE = 250_000;
+    private static final int MAX_SEGMENTS_PER_SLICE = 5;
+
+    public SlicedIndexSearcher(IndexReader indexReader, ExecutorService executor)
+    {
+        super(indexReader, executor);
+    }
+
+    @Override
+    protected LeafSlice[] slices(List<AtomicReaderContext> leaves)
+    {
+        List<AtomicReaderContext> sortedLeaves = new ArrayList<>(leaves);
+        sortedLeaves.sort(Comparator.comparing((AtomicReaderContext l) -> l.reader().maxDoc()).reversed());
+
+        List<LeafSlice> slices = new ArrayList<>();
+        List<AtomicReaderContext> group = new ArrayList<>();
+        long groupDocs = 0;
+        for (AtomicReaderContext leaf : sortedLeaves) {
+            group.add(leaf);
+            groupDocs += leaf.reader().maxDoc();
+            if (groupDocs >= MAX_DOCS_PER_SLICE || group.size() >= MAX_SEGMENTS_PER_SLICE) {
+                slices.add(newLeafSlice(group));
+                group.clear();
+                groupDocs = 0;
+            }
+        }
+        if (!group.isEmpty()) {
+            slices.add(newLeafSlice(group));
+        }
+        return slices.toArray(new LeafSlice[slices.size()]);
+    }
+
+    private static LeafSlice newLeafSlice(List<AtomicReaderContext> group)
+    {
+        AtomicReaderContext[] leaves = group.toArray(new AtomicReaderContext[group.size()]);
+        Arrays.sort(leaves, Comparator.comparing((AtomicReaderContext l) -> l.docBase));
+        return new LeafSlice(leaves);
+    }
+}
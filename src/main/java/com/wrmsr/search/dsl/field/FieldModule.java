@@ -13,31 +13,75 @@
  */
 package com.wrmsr.search.dsl.field;
 
-import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 import com.google.inject.Binder;
+import com.google.inject.Key;
 import com.google.inject.Module;
+import com.google.inject.TypeLiteral;
+import com.google.inject.name.Names;
 import com.wrmsr.search.dsl.DocSpecific;
 import com.wrmsr.search.dsl.SearchScope;
 import com.wrmsr.search.dsl.SearchScoped;
+import org.apache.lucene.document.FieldType;
 
-import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import static com.google.inject.multibindings.Multibinder.newSetBinder;
 
 public class FieldModule
         implements Module
 {
-    public static final List<String> STRING_FIELD_NAMES = ImmutableList.of("isbn", "title");
+    public static final Map<String, StringFieldSource> STRING_FIELDS = ImmutableMap.of(
+            "isbn", StringFieldSource.SORTED_DOC_VALUES,
+            "title", StringFieldSource.SORTED_DOC_VALUES);
+
+    public static final Map<String, FieldType.NumericType> NUMERIC_FIELDS = ImmutableMap.of(
+            "year", FieldType.NumericType.INT);
+
+    public static final Set<String> POINT_FIELDS = ImmutableSet.of("location");
+
+    public static final Key<Set<String>> POINT_FIELDS_KEY = Key.get(new TypeLiteral<Set<String>>() {}, Names.named("pointFields"));
+
+    private final Map<String, StringFieldSource> stringFields;
+    private final Map<String, FieldType.NumericType> numericFields;
+    private final Set<String> pointFields;
+
+    public FieldModule()
+    {
+        this(STRING_FIELDS);
+    }
+
+    public FieldModule(Map<String, StringFieldSource> stringFields)
+    {
+        this(stringFields, NUMERIC_FIELDS, POINT_FIELDS);
+    }
+
+    public FieldModule(Map<String, StringFieldSource> stringFields, Map<String, FieldType.NumericType> numericFields, Set<String> pointFields)
+    {
+        this.stringFields = ImmutableMap.copyOf(stringFields);
+        this.numericFields = ImmutableMap.copyOf(numericFields);
+        this.pointFields = ImmutableSet.copyOf(pointFields);
+    }
 
     @Override
     public void configure(Binder binder)
     {
+        binder.bind(new TypeLiteral<Map<String, StringFieldSource>>() {}).toInstance(stringFields);
+        binder.bind(new TypeLiteral<Map<String, FieldType.NumericType>>() {}).toInstance(numericFields);
+        binder.bind(POINT_FIELDS_KEY).toInstance(pointFields);
+
         binder.bind(FieldSupplierServiceImpl.class).in(SearchScoped.class);
         binder.bind(FieldSupplierService.class).to(FieldSupplierServiceImpl.class).in(SearchScoped.class);
         newSetBinder(binder, DocSpecific.class).addBinding().to(FieldSupplierServiceImpl.class).in(SearchScoped.class);
 
-        for (String stringFieldName : STRING_FIELD_NAMES) {
-            binder.install(FieldSupplierWiring.createStringFieldSupplierModule(stringFieldName, SearchScoped.class));
+        for (Map.Entry<String, StringFieldSource> stringField : stringFields.entrySet()) {
+            binder.install(FieldSupplierWiring.createStringFieldSupplierModule(stringField.getKey(), stringField.getValue(), SearchScoped.class));
+        }
+
+        for (String pointField : pointFields) {
+            binder.install(FieldSupplierWiring.createPointFieldSupplierModule(pointField, SearchScoped.class));
         }
     }
 }
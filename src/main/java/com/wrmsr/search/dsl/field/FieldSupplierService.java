@@ -24,4 +24,14 @@ public interface FieldSupplierService
     FieldSupplier<BytesRef> getBytesRefFieldSupplier(String fieldName);
 
     FieldSupplier<BytesRef[]> getBytesRefsFieldSupplier(String fieldName);
+
+    FieldSupplier<String> getSortedStringFieldSupplier(String fieldName);
+
+    FieldSupplier<String> getBinaryStringFieldSupplier(String fieldName);
+
+    FieldSupplier<BytesRef> getBinaryBytesRefFieldSupplier(String fieldName);
+
+    FieldSupplier<Long> getNumericFieldSupplier(String fieldName);
+
+    PointFieldSupplier getPointFieldSupplier(String fieldName);
 }
@@ -16,10 +16,21 @@ package com.wrmsr.search.dsl.field;
 import com.google.common.base.Throwables;
 import com.wrmsr.search.dsl.DocSpecific;
 import org.apache.lucene.document.Document;
+import org.apache.lucene.index.AtomicReader;
 import org.apache.lucene.index.AtomicReaderContext;
+import org.apache.lucene.index.BinaryDocValues;
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.NumericDocValues;
+import org.apache.lucene.index.SortedDocValues;
+import org.apache.lucene.util.Bits;
 import org.apache.lucene.util.BytesRef;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
 
 class FieldSupplierServiceImpl
         implements FieldSupplierService, DocSpecific
@@ -27,6 +38,12 @@ class FieldSupplierServiceImpl
     private AtomicReaderContext atomicReaderContext;
     private int docId;
 
+    private final Map<String, SortedColumn> sortedColumns = new HashMap<>();
+    private final Map<String, BinaryColumn> binaryColumns = new HashMap<>();
+    private final Map<String, NumericColumn> numericColumns = new HashMap<>();
+    private final Map<String, PointColumn> pointColumns = new HashMap<>();
+    private final List<Column> columns = new ArrayList<>();
+
     public FieldSupplierServiceImpl()
     {
     }
@@ -36,6 +53,9 @@ class FieldSupplierServiceImpl
             throws IOException
     {
         this.atomicReaderContext = atomicReaderContext;
+        for (Column column : columns) {
+            column.open(atomicReaderContext.reader());
+        }
     }
 
     @Override
@@ -54,6 +74,25 @@ class FieldSupplierServiceImpl
         }
     }
 
+    private <C extends Column> C getColumn(Map<String, C> columnMap, String fieldName, Function<String, C> factory)
+    {
+        C column = columnMap.get(fieldName);
+        if (column == null) {
+            column = factory.apply(fieldName);
+            if (atomicReaderContext != null) {
+                try {
+                    column.open(atomicReaderContext.reader());
+                }
+                catch (IOException e) {
+                    throw Throwables.propagate(e);
+                }
+            }
+            columnMap.put(fieldName, column);
+            columns.add(column);
+        }
+        return column;
+    }
+
     @Override
     public FieldSupplier<String> getStringFieldSupplier(String fieldName)
     {
@@ -77,4 +116,189 @@ class FieldSupplierServiceImpl
     {
         return () -> getDocument().getBinaryValues(fieldName);
     }
+
+    @Override
+    public FieldSupplier<String> getSortedStringFieldSupplier(String fieldName)
+    {
+        SortedColumn column = getColumn(sortedColumns, fieldName, SortedColumn::new);
+        return column::getString;
+    }
+
+    @Override
+    public FieldSupplier<String> getBinaryStringFieldSupplier(String fieldName)
+    {
+        BinaryColumn column = getColumn(binaryColumns, fieldName, BinaryColumn::new);
+        return column::getString;
+    }
+
+    @Override
+    public FieldSupplier<BytesRef> getBinaryBytesRefFieldSupplier(String fieldName)
+    {
+        BinaryColumn column = getColumn(binaryColumns, fieldName, BinaryColumn::new);
+        return column::getBytesRef;
+    }
+
+    @Override
+    public FieldSupplier<Long> getNumericFieldSupplier(String fieldName)
+    {
+        NumericColumn column = getColumn(numericColumns, fieldName, NumericColumn::new);
+        return column::getLong;
+    }
+
+    @Override
+    public PointFieldSupplier getPointFieldSupplier(String fieldName)
+    {
+        return getColumn(pointColumns, fieldName, PointColumn::new);
+    }
+
+    private abstract static class Column
+    {
+        protected final String fieldName;
+
+        public Column(String fieldName)
+        {
+            this.fieldName = fieldName;
+        }
+
+        public abstract void open(AtomicReader reader)
+                throws IOException;
+    }
+
+    private final class SortedColumn
+            extends Column
+    {
+        private SortedDocValues values = DocValues.emptySorted();
+        private int lastOrd = -1;
+        private String lastString;
+
+        public SortedColumn(String fieldName)
+        {
+            super(fieldName);
+        }
+
+        @Override
+        public void open(AtomicReader reader)
+                throws IOException
+        {
+            values = DocValues.getSorted(reader, fieldName);
+            lastOrd = -1;
+            lastString = null;
+        }
+
+        public String getString()
+        {
+            int ord = values.getOrd(docId);
+            if (ord < 0) {
+                return null;
+            }
+            if (ord != lastOrd) {
+                lastString = values.lookupOrd(ord).utf8ToString();
+                lastOrd = ord;
+            }
+            return lastString;
+        }
+    }
+
+    private final class BinaryColumn
+            extends Column
+    {
+        private BinaryDocValues values = DocValues.emptyBinary();
+        private Bits docsWithField = new Bits.MatchNoBits(0);
+
+        public BinaryColumn(String fieldName)
+        {
+            super(fieldName);
+        }
+
+        @Override
+        public void open(AtomicReader reader)
+                throws IOException
+        {
+            values = DocValues.getBinary(reader, fieldName);
+            docsWithField = DocValues.getDocsWithField(reader, fieldName);
+        }
+
+        public BytesRef getBytesRef()
+        {
+            if (!docsWithField.get(docId)) {
+                return null;
+            }
+            return values.get(docId);
+        }
+
+        public String getString()
+        {
+            BytesRef bytesRef = getBytesRef();
+            return bytesRef != null ? bytesRef.utf8ToString() : null;
+        }
+    }
+
+    private final class NumericColumn
+            extends Column
+    {
+        private NumericDocValues values = DocValues.emptyNumeric();
+        private Bits docsWithField = new Bits.MatchNoBits(0);
+
+        public NumericColumn(String fieldName)
+        {
+            super(fieldName);
+        }
+
+        @Override
+        public void open(AtomicReader reader)
+                throws IOException
+        {
+            values = DocValues.getNumeric(reader, fieldName);
+            docsWithField = DocValues.getDocsWithField(reader, fieldName);
+        }
+
+        public Long getLong()
+        {
+            if (!docsWithField.get(docId)) {
+                return null;
+            }
+            return values.get(docId);
+        }
+    }
+
+    private final class PointColumn
+            extends Column
+            implements PointFieldSupplier
+    {
+        private NumericDocValues latitudes = DocValues.emptyNumeric();
+        private NumericDocValues longitudes = DocValues.emptyNumeric();
+        private Bits docsWithField = new Bits.MatchNoBits(0);
+
+        public PointColumn(String fieldName)
+        {
+            super(fieldName);
+        }
+
+        @Override
+        public void open(AtomicReader reader)
+                throws IOException
+        {
+            latitudes = DocValues.getNumeric(reader, PointFields.getLatitudeField(fieldName));
+            longitudes = DocValues.getNumeric(reader, PointFields.getLongitudeField(fieldName));
+            docsWithField = DocValues.getDocsWithField(reader, PointFields.getLatitudeField(fieldName));
+        }
+
+        @Override
+        public boolean exists()
+        {
+            return docsWithField.get(docId);
+        }
+
+        @Override
+        public double getLatitude()
+        {
+            return Double.longBitsToDouble(latitudes.get(docId));
+        }
+
+        @Override
+        public double getLongitude()
+        {
+            return Double.longBitsToDouble(longitudes.get(docId));
+        }
+    }
 }
@@ -16,6 +16,7 @@ package com.wrmsr.search.dsl.field;
 import com.google.inject.Inject;
 import com.google.inject.Module;
 import com.google.inject.PrivateModule;
+import com.google.inject.Provider;
 import com.google.inject.TypeLiteral;
 import com.wrmsr.search.dsl.scoring.ScoreVars;
 
@@ -34,9 +35,9 @@ final class FieldSupplierWiring
         private final Supplier<String> supplier;
 
         @Inject
-        public StringFieldSupplierImpl(FieldSupplierService service, FieldName name)
+        public StringFieldSupplierImpl(FieldSupplierService service, FieldName name, StringFieldSource source)
         {
-            supplier = service.getStringFieldSupplier(name.getValue());
+            supplier = source.getFieldSupplier(service, name.getValue());
         }
 
         @Override
@@ -50,11 +51,13 @@ final class FieldSupplierWiring
             extends PrivateModule
     {
         private final String name;
+        private final StringFieldSource source;
         private final Class<? extends Annotation> scopeAnnotation;
 
-        public StringFieldSupplierModule(String name, Class<? extends Annotation> scopeAnnotation)
+        public StringFieldSupplierModule(String name, StringFieldSource source, Class<? extends Annotation> scopeAnnotation)
         {
             this.name = name;
+            this.source = source;
             this.scopeAnnotation = scopeAnnotation;
         }
 
@@ -62,13 +65,65 @@ final class FieldSupplierWiring
         protected void configure()
         {
             bind(FieldName.class).toInstance(new FieldName(name));
+            bind(StringFieldSource.class).toInstance(source);
             bind(new TypeLiteral<Supplier<String>>() {}).annotatedWith(ScoreVars.scoreVar(name)).to(StringFieldSupplierImpl.class).in(scopeAnnotation);
             expose(new TypeLiteral<Supplier<String>>() {}).annotatedWith(ScoreVars.scoreVar(name));
         }
     }
 
+    private static final class PointFieldSupplierProvider
+            implements Provider<PointFieldSupplier>
+    {
+        private final FieldSupplierService service;
+        private final FieldName name;
+
+        @Inject
+        public PointFieldSupplierProvider(FieldSupplierService service, FieldName name)
+        {
+            this.service = service;
+            this.name = name;
+        }
+
+        @Override
+        public PointFieldSupplier get()
+        {
+            return service.getPointFieldSupplier(name.getValue());
+        }
+    }
+
+    private static final class PointFieldSupplierModule
+            extends PrivateModule
+    {
+        private final String name;
+        private final Class<? extends Annotation> scopeAnnotation;
+
+        public PointFieldSupplierModule(String name, Class<? extends Annotation> scopeAnnotation)
+        {
+            this.name = name;
+            this.scopeAnnotation = scopeAnnotation;
+        }
+
+        @Override
+        protected void configure()
+        {
+            bind(FieldName.class).toInstance(new FieldName(name));
+            bind(PointFieldSupplier.class).annotatedWith(ScoreVars.scoreVar(name)).toProvider(PointFieldSupplierProvider.class).in(scopeAnnotation);
+            expose(PointFieldSupplier.class).annotatedWith(ScoreVars.scoreVar(name));
+        }
+    }
+
     public static Module createStringFieldSupplierModule(String name, Class<? extends Annotation> scopeAnnotation)
     {
-        return new StringFieldSupplierModule(name, scopeAnnotation);
+        return createStringFieldSupplierModule(name, StringFieldSource.STORED, scopeAnnotation);
+    }
+
+    public static Module createStringFieldSupplierModule(String name, StringFieldSource source, Class<? extends Annotation> scopeAnnotation)
+    {
+        return new StringFieldSupplierModule(name, source, scopeAnnotation);
+    }
+
+    public static Module createPointFieldSupplierModule(String name, Class<? extends Annotation> scopeAnnotation)
+    {
+        return new PointFieldSupplierModule(name, scopeAnnotation);
     }
 }
@@ -0,0 +1,35 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wrmsr.search.dsl.field;
+
+/**
+ * Points are indexed as a pair of trie-encoded double fields, which also carry double doc values, under derived
+ * field names.
+ */
+public final class PointFields
+{
+    private PointFields()
+    {
+    }
+
+    public static String getLatitudeField(String fieldName)
+    {
+        return fieldName + ".lat";
+    }
+
+    public static String getLongitudeField(String fieldName)
+    {
+        return fieldName + ".lon";
+    }
+}
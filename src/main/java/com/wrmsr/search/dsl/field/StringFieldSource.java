@@ -0,0 +1,70 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wrmsr.search.dsl.field;
+
+import org.apache.lucene.document.BinaryDocValuesField;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.SortedDocValuesField;
+import org.apache.lucene.util.BytesRef;
+
+import java.util.Optional;
+
+public enum StringFieldSource
+{
+    STORED {
+        @Override
+        public FieldSupplier<String> getFieldSupplier(FieldSupplierService service, String fieldName)
+        {
+            return service.getStringFieldSupplier(fieldName);
+        }
+
+        @Override
+        public Optional<Field> createDocValuesField(String fieldName, String value)
+        {
+            return Optional.empty();
+        }
+    },
+
+    SORTED_DOC_VALUES {
+        @Override
+        public FieldSupplier<String> getFieldSupplier(FieldSupplierService service, String fieldName)
+        {
+            return service.getSortedStringFieldSupplier(fieldName);
+        }
+
+        @Override
+        public Optional<Field> createDocValuesField(String fieldName, String value)
+        {
+            return Optional.of(new SortedDocValuesField(fieldName, new BytesRef(value)));
+        }
+    },
+
+    BINARY_DOC_VALUES {
+        @Override
+        public FieldSupplier<String> getFieldSupplier(FieldSupplierService service, String fieldName)
+        {
+            return service.getBinaryStringFieldSupplier(fieldName);
+        }
+
+        @Override
+        public Optional<Field> createDocValuesField(String fieldName, String value)
+        {
+            return Optional.of(new BinaryDocValuesField(fieldName, new BytesRef(value)));
+        }
+    };
+
+    public abstract FieldSupplier<String> getFieldSupplier(FieldSupplierService service, String fieldName);
+
+    public abstract Optional<Field> createDocValuesField(String fieldName, String value);
+}
@@ -0,0 +1,69 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wrmsr.search.dsl.lucene;
+
+import org.apache.lucene.index.AtomicReaderContext;
+import org.apache.lucene.search.BitsFilteredDocIdSet;
+import org.apache.lucene.search.DocIdSet;
+import org.apache.lucene.search.Filter;
+import org.apache.lucene.util.Bits;
+
+import java.io.IOException;
+
+import static java.util.Objects.requireNonNull;
+
+final class CachedFilter
+        extends Filter
+{
+    private final FilterCache filterCache;
+    private final Filter filter;
+
+    public CachedFilter(FilterCache filterCache, Filter filter)
+    {
+        this.filterCache = requireNonNull(filterCache);
+        this.filter = requireNonNull(filter);
+    }
+
+    @Override
+    public DocIdSet getDocIdSet(AtomicReaderContext context, Bits acceptDocs)
+            throws IOException
+    {
+        return BitsFilteredDocIdSet.wrap(filterCache.getDocIdSet(filter, context), acceptDocs);
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        CachedFilter that = (CachedFilter) o;
+        return filterCache == that.filterCache && filter.equals(that.filter);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return filter.hashCode();
+    }
+
+    @Override
+    public String toString()
+    {
+        return "CachedFilter(" + filter + ")";
+    }
+}
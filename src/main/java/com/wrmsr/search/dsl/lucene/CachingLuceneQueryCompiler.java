@@ -0,0 +1,98 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wrmsr.search.dsl.lucene;
+
+import com.google.common.base.Throwables;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import com.wrmsr.search.dsl.query.node.QueryNode;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.document.FieldType;
+import org.apache.lucene.search.Query;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Memoizes compiled queries by the structural identity of their QueryNode trees, and analyzed tokens by field and
+ * text so that uncached trees sharing match clauses still skip analysis. Cached queries are shared between callers
+ * and must not be mutated.
+ */
+public class CachingLuceneQueryCompiler
+        extends LuceneQueryCompiler
+{
+    private final LoadingCache<QueryNode, Query> queries;
+    private final LoadingCache<Map.Entry<String, String>, List<String>> tokens;
+
+    public CachingLuceneQueryCompiler(Analyzer analyzer, QueryTermRenderer queryTermRenderer, long maximumSize)
+    {
+        this(analyzer, queryTermRenderer, ImmutableMap.of(), maximumSize);
+    }
+
+    public CachingLuceneQueryCompiler(Analyzer analyzer, QueryTermRenderer queryTermRenderer, Map<String, FieldType.NumericType> numericFields, long maximumSize)
+    {
+        this(analyzer, queryTermRenderer, numericFields, Optional.empty(), maximumSize);
+    }
+
+    public CachingLuceneQueryCompiler(Analyzer analyzer, QueryTermRenderer queryTermRenderer, Map<String, FieldType.NumericType> numericFields, Optional<FilterCache> filterCache, long maximumSize)
+    {
+        super(analyzer, queryTermRenderer, numericFields, filterCache);
+        queries = CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .recordStats()
+                .build(CacheLoader.from(super::compileQuery));
+        tokens = CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .recordStats()
+                .build(CacheLoader.from(e -> super.analyze(e.getKey(), e.getValue())));
+    }
+
+    @Override
+    public Query compileQuery(QueryNode root)
+    {
+        try {
+            return queries.getUnchecked(root);
+        }
+        catch (UncheckedExecutionException e) {
+            throw Throwables.propagate(e.getCause());
+        }
+    }
+
+    @Override
+    protected List<String> analyze(String field, String text)
+    {
+        try {
+            return tokens.getUnchecked(Maps.immutableEntry(field, text));
+        }
+        catch (UncheckedExecutionException e) {
+            throw Throwables.propagate(e.getCause());
+        }
+    }
+
+    public CacheStats getQueryCacheStats()
+    {
+        return queries.stats();
+    }
+
+    public CacheStats getTokenCacheStats()
+    {
+        return tokens.stats();
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wrmsr.search.dsl.lucene;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.collect.Maps;
+import org.apache.lucene.index.AtomicReader;
+import org.apache.lucene.index.AtomicReaderContext;
+import org.apache.lucene.search.DocIdSet;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.search.Filter;
+import org.apache.lucene.util.FixedBitSet;
+import org.apache.lucene.util.WAH8DocIdSet;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Keeps the docs matched by non-scoring filters per segment core, as a bitset when dense and as a compressed sparse
+ * set otherwise, evicting least recently used sets beyond a total heap size. Sets are computed ignoring deletions, so
+ * they stay valid across every reader sharing the core, and are dropped as soon as the core itself is closed.
+ */
+public class FilterCache
+{
+    private final Cache<Map.Entry<Object, Filter>, DocIdSet> docIdSets;
+    private final Set<Object> listenedCoreKeys = ConcurrentHashMap.newKeySet();
+    private final AtomicReader.CoreClosedListener coreClosedListener = this::evictCore;
+
+    public FilterCache(long maximumBytes)
+    {
+        checkArgument(maximumBytes > 0);
+        docIdSets = CacheBuilder.newBuilder()
+                .maximumWeight(maximumBytes)
+                .<Map.Entry<Object, Filter>, DocIdSet>weigher((key, docIdSet) -> (int) Math.min(docIdSet.ramBytesUsed(), Integer.MAX_VALUE))
+                .recordStats()
+                .build();
+    }
+
+    public DocIdSet getDocIdSet(Filter filter, AtomicReaderContext context)
+            throws IOException
+    {
+        AtomicReader reader = context.reader();
+        Object coreKey = reader.getCoreCacheKey();
+        Map.Entry<Object, Filter> key = Maps.immutableEntry(coreKey, filter);
+        DocIdSet docIdSet = docIdSets.getIfPresent(key);
+        if (docIdSet == null) {
+            docIdSet = load(filter, context);
+            // a reference to the reader keeps its core open, so the core cannot close between registering the
+            // listener and caching the set, and a reader which already closed is not cached for at all
+            if (reader.tryIncRef()) {
+                try {
+                    if (listenedCoreKeys.add(coreKey)) {
+                        reader.addCoreClosedListener(coreClosedListener);
+                    }
+                    docIdSets.put(key, docIdSet);
+                }
+                finally {
+                    reader.decRef();
+                }
+            }
+        }
+        return docIdSet;
+    }
+
+    public long size()
+    {
+        return docIdSets.size();
+    }
+
+    public CacheStats getStats()
+    {
+        return docIdSets.stats();
+    }
+
+    private static DocIdSet load(Filter filter, AtomicReaderContext context)
+            throws IOException
+    {
+        DocIdSet docIdSet = filter.getDocIdSet(context, null);
+        DocIdSetIterator iterator = docIdSet != null ? docIdSet.iterator() : null;
+        if (iterator == null) {
+            return DocIdSet.EMPTY;
+        }
+        int maxDoc = context.reader().maxDoc();
+        FixedBitSet bits = new FixedBitSet(maxDoc);
+        bits.or(iterator);
+        // below about one match in sixteen docs the compressed set is the smaller of the two
+        if (bits.cardinality() < maxDoc >>> 4) {
+            return new WAH8DocIdSet.Builder().add(bits.iterator()).build();
+        }
+        return bits;
+    }
+
+    private void evictCore(Object coreKey)
+    {
+        listenedCoreKeys.remove(coreKey);
+        docIdSets.asMap().keySet().removeIf(key -> key.getKey() == coreKey);
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wrmsr.search.dsl.lucene;
+
+import com.wrmsr.search.dsl.field.PointFields;
+import com.wrmsr.search.dsl.util.Geo;
+import com.wrmsr.search.dsl.util.Point;
+import org.apache.lucene.index.AtomicReader;
+import org.apache.lucene.index.AtomicReaderContext;
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.NumericDocValues;
+import org.apache.lucene.search.DocIdSet;
+import org.apache.lucene.search.FieldCacheDocIdSet;
+import org.apache.lucene.search.Filter;
+import org.apache.lucene.util.Bits;
+
+import java.io.IOException;
+import java.util.Objects;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Random-access exact distance check against a point's latitude and longitude doc values. Only meant to be applied
+ * query-first to candidates already narrowed down through the index.
+ */
+final class GeoDistanceFilter
+        extends Filter
+{
+    private final String field;
+    private final Point center;
+    private final double distanceMeters;
+
+    public GeoDistanceFilter(String field, Point center, double distanceMeters)
+    {
+        this.field = requireNonNull(field);
+        this.center = requireNonNull(center);
+        this.distanceMeters = distanceMeters;
+    }
+
+    @Override
+    public DocIdSet getDocIdSet(AtomicReaderContext context, Bits acceptDocs)
+            throws IOException
+    {
+        AtomicReader reader = context.reader();
+        NumericDocValues latitudes = DocValues.getNumeric(reader, PointFields.getLatitudeField(field));
+        NumericDocValues longitudes = DocValues.getNumeric(reader, PointFields.getLongitudeField(field));
+        Bits docsWithField = DocValues.getDocsWithField(reader, PointFields.getLatitudeField(field));
+        double latitude = center.getLatitude();
+        double longitude = center.getLongitude();
+        return new FieldCacheDocIdSet(reader.maxDoc(), acceptDocs)
+        {
+            @Override
+            protected boolean matchDoc(int doc)
+            {
+                return docsWithField.get(doc) && Geo.distanceMeters(
+                        latitude,
+                        longitude,
+                        Double.longBitsToDouble(latitudes.get(doc)),
+                        Double.longBitsToDouble(longitudes.get(doc))) <= distanceMeters;
+            }
+        };
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        GeoDistanceFilter that = (GeoDistanceFilter) o;
+        return Objects.equals(field, that.field) &&
+                Objects.equals(center, that.center) &&
+                Double.compare(distanceMeters, that.distanceMeters) == 0;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Objects.hash(field, center, distanceMeters);
+    }
+
+    @Override
+    public String toString()
+    {
+        return "GeoDistanceFilter{" +
+                "field=" + field +
+                ", center=" + center +
+                ", distanceMeters=" + distanceMeters +
+                '}';
+    }
+}
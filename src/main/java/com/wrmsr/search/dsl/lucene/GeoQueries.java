@@ -0,0 +1,89 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wrmsr.search.dsl.lucene;
+
+import com.wrmsr.search.dsl.field.PointFields;
+import com.wrmsr.search.dsl.util.Geo;
+import com.wrmsr.search.dsl.util.Point;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.FilteredQuery;
+import org.apache.lucene.search.NumericRangeQuery;
+import org.apache.lucene.search.Query;
+
+/**
+ * Compiles geo nodes into numeric range queries over a point's trie-encoded latitude and longitude, so candidates
+ * come from the index rather than from checking every doc.
+ */
+final class GeoQueries
+{
+    private GeoQueries()
+    {
+    }
+
+    public static Query newBoundingBoxQuery(String field, double minLatitude, double maxLatitude, double minLongitude, double maxLongitude)
+    {
+        BooleanQuery query = new BooleanQuery();
+        query.add(NumericRangeQuery.newDoubleRange(PointFields.getLatitudeField(field), minLatitude, maxLatitude, true, true), BooleanClause.Occur.MUST);
+
+        String longitudeField = PointFields.getLongitudeField(field);
+        if (minLongitude <= maxLongitude) {
+            query.add(NumericRangeQuery.newDoubleRange(longitudeField, minLongitude, maxLongitude, true, true), BooleanClause.Occur.MUST);
+        }
+        else {
+            // crosses the antimeridian
+            BooleanQuery longitudeQuery = new BooleanQuery();
+            longitudeQuery.add(NumericRangeQuery.newDoubleRange(longitudeField, minLongitude, 180.0, true, true), BooleanClause.Occur.SHOULD);
+            longitudeQuery.add(NumericRangeQuery.newDoubleRange(longitudeField, -180.0, maxLongitude, true, true), BooleanClause.Occur.SHOULD);
+            query.add(longitudeQuery, BooleanClause.Occur.MUST);
+        }
+        return query;
+    }
+
+    /**
+     * Matches the box enclosing the circle through the index, then checks the exact distance only for the docs in it.
+     */
+    public static Query newDistanceQuery(String field, Point center, double distanceMeters)
+    {
+        double latitude = center.getLatitude();
+        double longitude = center.getLongitude();
+        double angularDistance = distanceMeters / Geo.EARTH_RADIUS_METERS;
+        double minLatitude = latitude - Math.toDegrees(angularDistance);
+        double maxLatitude = latitude + Math.toDegrees(angularDistance);
+
+        double minLongitude;
+        double maxLongitude;
+        if (minLatitude <= -90.0 || maxLatitude >= 90.0 || angularDistance >= Math.PI / 2) {
+            // the circle reaches a pole so spans every longitude
+            minLatitude = Math.max(minLatitude, -90.0);
+            maxLatitude = Math.min(maxLatitude, 90.0);
+            minLongitude = -180.0;
+            maxLongitude = 180.0;
+        }
+        else {
+            double deltaLongitude = Math.toDegrees(Math.asin(Math.sin(angularDistance) / Math.cos(Math.toRadians(latitude))));
+            minLongitude = longitude - deltaLongitude;
+            maxLongitude = longitude + deltaLongitude;
+            if (minLongitude < -180.0) {
+                minLongitude += 360.0;
+            }
+            if (maxLongitude > 180.0) {
+                maxLongitude -= 360.0;
+            }
+        }
+
+        Query boxQuery = newBoundingBoxQuery(field, minLatitude, maxLatitude, minLongitude, maxLongitude);
+        return new FilteredQuery(boxQuery, new GeoDistanceFilter(field, center, distanceMeters), FilteredQuery.QUERY_FIRST_FILTER_STRATEGY);
+    }
+}
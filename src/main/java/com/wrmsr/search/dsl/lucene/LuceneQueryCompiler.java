@@ -13,9 +13,13 @@
  */
 package com.wrmsr.search.dsl.lucene;
 
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.wrmsr.search.dsl.query.node.BooleanQueryNode;
 import com.wrmsr.search.dsl.query.node.BoostedQueryNode;
 import com.wrmsr.search.dsl.query.node.ConstantScoreQueryNode;
+import com.wrmsr.search.dsl.query.node.GeoBoundingBoxQueryNode;
+import com.wrmsr.search.dsl.query.node.GeoDistanceQueryNode;
 import com.wrmsr.search.dsl.query.node.MatchAllQueryNode;
 import com.wrmsr.search.dsl.query.node.MatchQueryNode;
 import com.wrmsr.search.dsl.query.node.QueryNode;
@@ -26,28 +30,47 @@ import com.wrmsr.search.dsl.query.node.TermQueryNode;
 import org.apache.lucene.analysis.Analyzer;
 import org.apache.lucene.analysis.TokenStream;
 import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.document.FieldType;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.search.BooleanClause;
 import org.apache.lucene.search.BooleanQuery;
 import org.apache.lucene.search.ConstantScoreQuery;
 import org.apache.lucene.search.MatchAllDocsQuery;
 import org.apache.lucene.search.Query;
+import org.apache.lucene.search.QueryWrapperFilter;
 import org.apache.lucene.search.TermQuery;
 import org.apache.lucene.search.TermRangeQuery;
 
 import java.io.IOException;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
 
 public class LuceneQueryCompiler
         implements QueryNodeCompiler<Query>
 {
     protected final Analyzer analyzer;
     protected final QueryTermRenderer queryTermRenderer;
+    protected final Map<String, FieldType.NumericType> numericFields;
+    protected final Optional<FilterCache> filterCache;
 
     public LuceneQueryCompiler(Analyzer analyzer, QueryTermRenderer queryTermRenderer)
+    {
+        this(analyzer, queryTermRenderer, ImmutableMap.of());
+    }
+
+    public LuceneQueryCompiler(Analyzer analyzer, QueryTermRenderer queryTermRenderer, Map<String, FieldType.NumericType> numericFields)
+    {
+        this(analyzer, queryTermRenderer, numericFields, Optional.empty());
+    }
+
+    public LuceneQueryCompiler(Analyzer analyzer, QueryTermRenderer queryTermRenderer, Map<String, FieldType.NumericType> numericFields, Optional<FilterCache> filterCache)
     {
         this.analyzer = analyzer;
         this.queryTermRenderer = queryTermRenderer;
+        this.numericFields = ImmutableMap.copyOf(numericFields);
+        this.filterCache = filterCache;
     }
 
     @Override
@@ -56,6 +79,40 @@ public class LuceneQueryCompiler
         return root.accept(new Visitor(), new Context());
     }
 
+    protected List<String> analyze(String field, String text)
+    {
+        ImmutableList.Builder<String> builder = ImmutableList.builder();
+        try {
+            TokenStream tokenStream = analyzer.tokenStream(field, text);
+            CharTermAttribute termAtt = tokenStream.addAttribute(CharTermAttribute.class);
+            try {
+                tokenStream.reset();
+                while (tokenStream.incrementToken()) {
+                    builder.add(termAtt.toString());
+                }
+                tokenStream.end();
+            }
+            finally {
+                tokenStream.close();
+            }
+        }
+        catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Wraps a subtree whose score is never used so its matches are served from the filter cache when there is one.
+     */
+    protected Query newFilterQuery(Query query)
+    {
+        if (filterCache.isPresent()) {
+            return new ConstantScoreQuery(new CachedFilter(filterCache.get(), new QueryWrapperFilter(query)));
+        }
+        return new ConstantScoreQuery(query);
+    }
+
     protected static class Context
     {
     }
@@ -79,6 +136,10 @@ public class LuceneQueryCompiler
         @Override
         public Query visitTermQueryNode(TermQueryNode node, Context context)
         {
+            FieldType.NumericType numericType = numericFields.get(node.getField());
+            if (numericType != null) {
+                return NumericQueries.newRangeQuery(node.getField(), numericType, node.getTerm(), node.getTerm(), true, true);
+            }
             return new TermQuery(queryTermRenderer.renderQueryTerm(node.getField(), node.getTerm()));
         }
 
@@ -86,24 +147,11 @@ public class LuceneQueryCompiler
         public Query visitMatchQueryNode(MatchQueryNode node, Context context)
         {
             BooleanQuery query = new BooleanQuery();
-            try {
-                TokenStream tokenStream = analyzer.tokenStream(node.getField(), node.getText());
-                CharTermAttribute termAtt = tokenStream.addAttribute(CharTermAttribute.class);
-                try {
-                    tokenStream.reset();
-                    query.setMinimumNumberShouldMatch(1);
-                    while (tokenStream.incrementToken()) {
-                        query.add(new TermQuery(new Term(node.getField(), termAtt.toString())), BooleanClause.Occur.SHOULD);
-                    }
-                    return query;
-                }
-                finally {
-                    tokenStream.close();
-                }
-            }
-            catch (IOException e) {
-                throw new RuntimeException(e);
+            query.setMinimumNumberShouldMatch(1);
+            for (String token : analyze(node.getField(), node.getText())) {
+                query.add(new TermQuery(new Term(node.getField(), token)), BooleanClause.Occur.SHOULD);
             }
+            return query;
         }
 
         @Override
@@ -125,7 +173,8 @@ public class LuceneQueryCompiler
                 else {
                     throw new IllegalArgumentException(Objects.toString(c));
                 }
-                query.add(c.getQuery().accept(this, context), occur);
+                Query clauseQuery = c.getQuery().accept(this, context);
+                query.add(occur == BooleanClause.Occur.MUST_NOT && filterCache.isPresent() ? newFilterQuery(clauseQuery) : clauseQuery, occur);
             });
             return query;
         }
@@ -133,7 +182,7 @@ public class LuceneQueryCompiler
         @Override
         public Query visitConstantScoreQueryNode(ConstantScoreQueryNode node, Context context)
         {
-            Query query = new ConstantScoreQuery(node.getQuery().accept(this, context));
+            Query query = newFilterQuery(node.getQuery().accept(this, context));
             query.setBoost(node.getBoost());
             return query;
         }
@@ -149,6 +198,10 @@ public class LuceneQueryCompiler
         @Override
         public Query visitRangeQueryNode(RangeQueryNode node, Context context)
         {
+            FieldType.NumericType numericType = numericFields.get(node.getField());
+            if (numericType != null) {
+                return NumericQueries.newRangeQuery(node.getField(), numericType, node.getLower(), node.getUpper(), node.isIncludeLower(), node.isIncludeUpper());
+            }
             return new TermRangeQuery(
                     node.getField(),
                     queryTermRenderer.renderQueryTerm(node.getField(), node.getLower()).bytes(),
@@ -156,5 +209,22 @@ public class LuceneQueryCompiler
                     node.isIncludeLower(),
                     node.isIncludeUpper());
         }
+
+        @Override
+        public Query visitGeoBoundingBoxQueryNode(GeoBoundingBoxQueryNode node, Context context)
+        {
+            return GeoQueries.newBoundingBoxQuery(
+                    node.getField(),
+                    node.getBottomRight().getLatitude(),
+                    node.getTopLeft().getLatitude(),
+                    node.getTopLeft().getLongitude(),
+                    node.getBottomRight().getLongitude());
+        }
+
+        @Override
+        public Query visitGeoDistanceQueryNode(GeoDistanceQueryNode node, Context context)
+        {
+            return GeoQueries.newDistanceQuery(node.getField(), node.getCenter(), node.getDistanceMeters());
+        }
     }
 }
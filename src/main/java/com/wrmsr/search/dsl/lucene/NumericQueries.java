@@ -0,0 +1,82 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wrmsr.search.dsl.lucene;
+
+import com.wrmsr.search.dsl.query.term.NumberQueryTerm;
+import com.wrmsr.search.dsl.query.term.QueryTerm;
+import org.apache.lucene.document.FieldType;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.NumericRangeQuery;
+import org.apache.lucene.search.Query;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Objects;
+
+/**
+ * Compiles number bounds over trie-encoded numeric fields into NumericRangeQueries, which visit a logarithmic number
+ * of precision-stepped terms instead of enumerating every term in the range.
+ */
+final class NumericQueries
+{
+    private static final BigDecimal MIN_INT = BigDecimal.valueOf(Integer.MIN_VALUE);
+    private static final BigDecimal MAX_INT = BigDecimal.valueOf(Integer.MAX_VALUE);
+    private static final BigDecimal MIN_LONG = BigDecimal.valueOf(Long.MIN_VALUE);
+    private static final BigDecimal MAX_LONG = BigDecimal.valueOf(Long.MAX_VALUE);
+
+    private NumericQueries()
+    {
+    }
+
+    public static Query newRangeQuery(String field, FieldType.NumericType numericType, QueryTerm<?> lower, QueryTerm<?> upper, boolean includeLower, boolean includeUpper)
+    {
+        BigDecimal lowerValue = getNumber(field, lower);
+        BigDecimal upperValue = getNumber(field, upper);
+        switch (numericType) {
+            case INT:
+            case LONG: {
+                // integral fields round fractional bounds inward, which also makes them inclusive
+                BigDecimal min = numericType == FieldType.NumericType.INT ? MIN_INT : MIN_LONG;
+                BigDecimal max = numericType == FieldType.NumericType.INT ? MAX_INT : MAX_LONG;
+                BigDecimal roundedLower = lowerValue.setScale(0, RoundingMode.CEILING);
+                BigDecimal roundedUpper = upperValue.setScale(0, RoundingMode.FLOOR);
+                includeLower |= roundedLower.compareTo(lowerValue) != 0;
+                includeUpper |= roundedUpper.compareTo(upperValue) != 0;
+                if (roundedLower.compareTo(max) > 0 || roundedUpper.compareTo(min) < 0) {
+                    return new BooleanQuery();
+                }
+                long lowerLong = roundedLower.max(min).longValue();
+                long upperLong = roundedUpper.min(max).longValue();
+                if (numericType == FieldType.NumericType.INT) {
+                    return NumericRangeQuery.newIntRange(field, (int) lowerLong, (int) upperLong, includeLower, includeUpper);
+                }
+                return NumericRangeQuery.newLongRange(field, lowerLong, upperLong, includeLower, includeUpper);
+            }
+            case FLOAT:
+                return NumericRangeQuery.newFloatRange(field, lowerValue.floatValue(), upperValue.floatValue(), includeLower, includeUpper);
+            case DOUBLE:
+                return NumericRangeQuery.newDoubleRange(field, lowerValue.doubleValue(), upperValue.doubleValue(), includeLower, includeUpper);
+            default:
+                throw new IllegalArgumentException(Objects.toString(numericType));
+        }
+    }
+
+    private static BigDecimal getNumber(String field, QueryTerm<?> term)
+    {
+        if (!(term instanceof NumberQueryTerm)) {
+            throw new IllegalArgumentException("numeric field " + field + " requires number terms: " + term);
+        }
+        return ((NumberQueryTerm) term).getValue();
+    }
+}
@@ -17,10 +17,10 @@ import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.annotation.JsonSubTypes;
 import com.fasterxml.jackson.annotation.JsonTypeInfo;
+import com.google.common.collect.ImmutableList;
 
 import java.util.List;
-
-import static java.util.Objects.requireNonNull;
+import java.util.Objects;
 
 public final class BooleanQueryNode
         extends QueryNode
@@ -47,6 +47,33 @@ public final class BooleanQueryNode
         {
             return query;
         }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            Clause that = (Clause) o;
+            return Objects.equals(query, that.query);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return Objects.hash(getClass(), query);
+        }
+
+        @Override
+        public String toString()
+        {
+            return getClass().getSimpleName() + "{" +
+                    "query=" + query +
+                    '}';
+        }
     }
 
     public static final class ShouldClause
@@ -82,15 +109,15 @@ public final class BooleanQueryNode
         }
     }
 
-    private List<Clause> clauses;
-    private int minimumNumberShouldMatch;
+    private final List<Clause> clauses;
+    private final int minimumNumberShouldMatch;
 
     @JsonCreator
     public BooleanQueryNode(
             @JsonProperty("clauses") List<Clause> clauses,
             @JsonProperty("minimum_number_should_match") int minimumNumberShouldMatch)
     {
-        this.clauses = requireNonNull(clauses);
+        this.clauses = ImmutableList.copyOf(clauses);
         this.minimumNumberShouldMatch = minimumNumberShouldMatch;
     }
 
@@ -106,6 +133,35 @@ public final class BooleanQueryNode
         return minimumNumberShouldMatch;
     }
 
+    @Override
+    public boolean equals(Object o)
+    {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        BooleanQueryNode that = (BooleanQueryNode) o;
+        return Objects.equals(clauses, that.clauses) &&
+                minimumNumberShouldMatch == that.minimumNumberShouldMatch;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Objects.hash(clauses, minimumNumberShouldMatch);
+    }
+
+    @Override
+    public String toString()
+    {
+        return "BooleanQueryNode{" +
+                "clauses=" + clauses +
+                ", minimumNumberShouldMatch=" + minimumNumberShouldMatch +
+                '}';
+    }
+
     @Override
     public <C, R> R accept(QueryNodeVisitor<C, R> visitor, C context)
     {
@@ -16,6 +16,8 @@ package com.wrmsr.search.dsl.query.node;
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
+import java.util.Objects;
+
 import static java.util.Objects.requireNonNull;
 
 public final class BoostedQueryNode
@@ -45,6 +47,35 @@ public final class BoostedQueryNode
         return boost;
     }
 
+    @Override
+    public boolean equals(Object o)
+    {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        BoostedQueryNode that = (BoostedQueryNode) o;
+        return Objects.equals(query, that.query) &&
+                Float.compare(that.boost, boost) == 0;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Objects.hash(query, boost);
+    }
+
+    @Override
+    public String toString()
+    {
+        return "BoostedQueryNode{" +
+                "query=" + query +
+                ", boost=" + boost +
+                '}';
+    }
+
     @Override
     public <C, R> R accept(QueryNodeVisitor<C, R> visitor, C context)
     {
@@ -16,6 +16,8 @@ package com.wrmsr.search.dsl.query.node;
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
+import java.util.Objects;
+
 import static java.util.Objects.requireNonNull;
 
 public final class ConstantScoreQueryNode
@@ -45,6 +47,35 @@ public final class ConstantScoreQueryNode
         return boost;
     }
 
+    @Override
+    public boolean equals(Object o)
+    {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        ConstantScoreQueryNode that = (ConstantScoreQueryNode) o;
+        return Objects.equals(query, that.query) &&
+                Float.compare(that.boost, boost) == 0;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Objects.hash(query, boost);
+    }
+
+    @Override
+    public String toString()
+    {
+        return "ConstantScoreQueryNode{" +
+                "query=" + query +
+                ", boost=" + boost +
+                '}';
+    }
+
     @Override
     public <C, R> R accept(QueryNodeVisitor<C, R> visitor, C context)
     {
@@ -0,0 +1,100 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wrmsr.search.dsl.query.node;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.wrmsr.search.dsl.util.Point;
+
+import java.util.Objects;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Matches docs whose point lies in the box spanned by its corners. A box whose left longitude is east of its right
+ * one crosses the antimeridian.
+ */
+public final class GeoBoundingBoxQueryNode
+        extends QueryNode
+{
+    private final String field;
+    private final Point topLeft;
+    private final Point bottomRight;
+
+    @JsonCreator
+    public GeoBoundingBoxQueryNode(
+            @JsonProperty("field") String field,
+            @JsonProperty("top_left") Point topLeft,
+            @JsonProperty("bottom_right") Point bottomRight)
+    {
+        this.field = requireNonNull(field);
+        this.topLeft = requireNonNull(topLeft);
+        this.bottomRight = requireNonNull(bottomRight);
+    }
+
+    @JsonProperty("field")
+    public String getField()
+    {
+        return field;
+    }
+
+    @JsonProperty("top_left")
+    public Point getTopLeft()
+    {
+        return topLeft;
+    }
+
+    @JsonProperty("bottom_right")
+    public Point getBottomRight()
+    {
+        return bottomRight;
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        GeoBoundingBoxQueryNode that = (GeoBoundingBoxQueryNode) o;
+        return Objects.equals(field, that.field) &&
+                Objects.equals(topLeft, that.topLeft) &&
+                Objects.equals(bottomRight, that.bottomRight);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Objects.hash(field, topLeft, bottomRight);
+    }
+
+    @Override
+    public String toString()
+    {
+        return "GeoBoundingBoxQueryNode{" +
+                "field=" + field +
+                ", topLeft=" + topLeft +
+                ", bottomRight=" + bottomRight +
+                '}';
+    }
+
+    @Override
+    public <C, R> R accept(QueryNodeVisitor<C, R> visitor, C context)
+    {
+        return visitor.visitGeoBoundingBoxQueryNode(this, context);
+    }
+}
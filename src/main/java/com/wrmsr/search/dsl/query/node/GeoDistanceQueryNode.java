@@ -0,0 +1,98 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wrmsr.search.dsl.query.node;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.wrmsr.search.dsl.util.Point;
+
+import java.util.Objects;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+public final class GeoDistanceQueryNode
+        extends QueryNode
+{
+    private final String field;
+    private final Point center;
+    private final double distanceMeters;
+
+    @JsonCreator
+    public GeoDistanceQueryNode(
+            @JsonProperty("field") String field,
+            @JsonProperty("center") Point center,
+            @JsonProperty("distance_meters") double distanceMeters)
+    {
+        checkArgument(distanceMeters >= 0);
+        this.field = requireNonNull(field);
+        this.center = requireNonNull(center);
+        this.distanceMeters = distanceMeters;
+    }
+
+    @JsonProperty("field")
+    public String getField()
+    {
+        return field;
+    }
+
+    @JsonProperty("center")
+    public Point getCenter()
+    {
+        return center;
+    }
+
+    @JsonProperty("distance_meters")
+    public double getDistanceMeters()
+    {
+        return distanceMeters;
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        GeoDistanceQueryNode that = (GeoDistanceQueryNode) o;
+        return Objects.equals(field, that.field) &&
+                Objects.equals(center, that.center) &&
+                Double.compare(distanceMeters, that.distanceMeters) == 0;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Objects.hash(field, center, distanceMeters);
+    }
+
+    @Override
+    public String toString()
+    {
+        return "GeoDistanceQueryNode{" +
+                "field=" + field +
+                ", center=" + center +
+                ", distanceMeters=" + distanceMeters +
+                '}';
+    }
+
+    @Override
+    public <C, R> R accept(QueryNodeVisitor<C, R> visitor, C context)
+    {
+        return visitor.visitGeoDistanceQueryNode(this, context);
+    }
+}
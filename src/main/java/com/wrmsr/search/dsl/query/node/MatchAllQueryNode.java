@@ -23,6 +23,24 @@ public final class MatchAllQueryNode
     {
     }
 
+    @Override
+    public boolean equals(Object o)
+    {
+        return this == o || (o != null && getClass() == o.getClass());
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return getClass().hashCode();
+    }
+
+    @Override
+    public String toString()
+    {
+        return "MatchAllQueryNode{}";
+    }
+
     @Override
     public <C, R> R accept(QueryNodeVisitor<C, R> visitor, C context)
     {
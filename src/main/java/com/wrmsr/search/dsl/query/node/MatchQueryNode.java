@@ -16,6 +16,8 @@ package com.wrmsr.search.dsl.query.node;
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
+import java.util.Objects;
+
 import static java.util.Objects.requireNonNull;
 
 public final class MatchQueryNode
@@ -45,6 +47,35 @@ public final class MatchQueryNode
         return text;
     }
 
+    @Override
+    public boolean equals(Object o)
+    {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        MatchQueryNode that = (MatchQueryNode) o;
+        return Objects.equals(field, that.field) &&
+                Objects.equals(text, that.text);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Objects.hash(field, text);
+    }
+
+    @Override
+    public String toString()
+    {
+        return "MatchQueryNode{" +
+                "field=" + field +
+                ", text=" + text +
+                '}';
+    }
+
     @Override
     public <C, R> R accept(QueryNodeVisitor<C, R> visitor, C context)
     {
@@ -27,6 +27,8 @@ import com.fasterxml.jackson.annotation.JsonTypeInfo;
         @JsonSubTypes.Type(value = ConstantScoreQueryNode.class, name = "constant_score"),
         @JsonSubTypes.Type(value = BoostedQueryNode.class, name = "boosted"),
         @JsonSubTypes.Type(value = RangeQueryNode.class, name = "range"),
+        @JsonSubTypes.Type(value = GeoBoundingBoxQueryNode.class, name = "geo_bounding_box"),
+        @JsonSubTypes.Type(value = GeoDistanceQueryNode.class, name = "geo_distance"),
 })
 public abstract class QueryNode
 {
@@ -54,4 +54,14 @@ public class QueryNodeVisitor<C, R>
     {
         return visitNode(node, context);
     }
+
+    public R visitGeoBoundingBoxQueryNode(GeoBoundingBoxQueryNode node, C context)
+    {
+        return visitNode(node, context);
+    }
+
+    public R visitGeoDistanceQueryNode(GeoDistanceQueryNode node, C context)
+    {
+        return visitNode(node, context);
+    }
 }
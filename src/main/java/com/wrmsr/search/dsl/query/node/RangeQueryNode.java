@@ -17,6 +17,8 @@ import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.wrmsr.search.dsl.query.term.QueryTerm;
 
+import java.util.Objects;
+
 import static com.google.common.base.Preconditions.checkArgument;
 import static java.util.Objects.requireNonNull;
 
@@ -77,6 +79,41 @@ public final class RangeQueryNode
         return includeUpper;
     }
 
+    @Override
+    public boolean equals(Object o)
+    {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        RangeQueryNode that = (RangeQueryNode) o;
+        return Objects.equals(field, that.field) &&
+                Objects.equals(lower, that.lower) &&
+                Objects.equals(upper, that.upper) &&
+                includeLower == that.includeLower &&
+                includeUpper == that.includeUpper;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Objects.hash(field, lower, upper, includeLower, includeUpper);
+    }
+
+    @Override
+    public String toString()
+    {
+        return "RangeQueryNode{" +
+                "field=" + field +
+                ", lower=" + lower +
+                ", upper=" + upper +
+                ", includeLower=" + includeLower +
+                ", includeUpper=" + includeUpper +
+                '}';
+    }
+
     @Override
     public <C, R> R accept(QueryNodeVisitor<C, R> visitor, C context)
     {
@@ -17,6 +17,8 @@ import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.wrmsr.search.dsl.query.term.QueryTerm;
 
+import java.util.Objects;
+
 import static java.util.Objects.requireNonNull;
 
 public final class TermQueryNode
@@ -46,6 +48,35 @@ public final class TermQueryNode
         return term;
     }
 
+    @Override
+    public boolean equals(Object o)
+    {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        TermQueryNode that = (TermQueryNode) o;
+        return Objects.equals(field, that.field) &&
+                Objects.equals(term, that.term);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Objects.hash(field, term);
+    }
+
+    @Override
+    public String toString()
+    {
+        return "TermQueryNode{" +
+                "field=" + field +
+                ", term=" + term +
+                '}';
+    }
+
     @Override
     public <C, R> R accept(QueryNodeVisitor<C, R> visitor, C context)
     {
@@ -16,6 +16,8 @@ package com.wrmsr.search.dsl.query.term;
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
+import java.util.Objects;
+
 public class BooleanQueryTerm
         extends QueryTerm<Boolean>
 {
@@ -34,4 +36,31 @@ public class BooleanQueryTerm
     {
         return value;
     }
+
+    @Override
+    public boolean equals(Object o)
+    {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        BooleanQueryTerm that = (BooleanQueryTerm) o;
+        return value == that.value;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Objects.hash(value);
+    }
+
+    @Override
+    public String toString()
+    {
+        return "BooleanQueryTerm{" +
+                "value=" + value +
+                '}';
+    }
 }
@@ -17,6 +17,8 @@ import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.wrmsr.search.dsl.util.Point;
 
+import java.util.Objects;
+
 public class PointQueryTerm
         extends QueryTerm<Point>
 {
@@ -35,4 +37,31 @@ public class PointQueryTerm
     {
         return value;
     }
+
+    @Override
+    public boolean equals(Object o)
+    {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        PointQueryTerm that = (PointQueryTerm) o;
+        return Objects.equals(value, that.value);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Objects.hash(value);
+    }
+
+    @Override
+    public String toString()
+    {
+        return "PointQueryTerm{" +
+                "value=" + value +
+                '}';
+    }
 }
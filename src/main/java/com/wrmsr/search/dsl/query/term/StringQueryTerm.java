@@ -16,6 +16,8 @@ package com.wrmsr.search.dsl.query.term;
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
+import java.util.Objects;
+
 import static java.util.Objects.requireNonNull;
 
 public final class StringQueryTerm
@@ -36,4 +38,31 @@ public final class StringQueryTerm
     {
         return value;
     }
+
+    @Override
+    public boolean equals(Object o)
+    {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        StringQueryTerm that = (StringQueryTerm) o;
+        return Objects.equals(value, that.value);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Objects.hash(value);
+    }
+
+    @Override
+    public String toString()
+    {
+        return "StringQueryTerm{" +
+                "value=" + value +
+                '}';
+    }
 }
@@ -19,6 +19,7 @@ public final class Computations
     {
     }
 
+    @MaxScore(1.0f)
     @ScoreVar("float_one")
     public static float computeFloatOne()
     {
@@ -30,4 +31,11 @@ public final class Computations
     {
         return (float) isbn.length() + floatOne + weirdScore;
     }
+
+    @MaxScore(1.0f)
+    @ScoreVar("proximity")
+    public static float computeProximity(@ScoreVar("distance") double distance)
+    {
+        return (float) (1.0 / (1.0 + distance / 1000.0));
+    }
 }
@@ -0,0 +1,59 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wrmsr.search.dsl.scoring;
+
+import com.google.inject.Inject;
+import com.wrmsr.search.dsl.field.PointFieldSupplier;
+import com.wrmsr.search.dsl.util.Geo;
+import com.wrmsr.search.dsl.util.Point;
+
+import java.util.function.DoubleSupplier;
+import java.util.function.Supplier;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Meters from the search's seeded origin to the doc's location, or positive infinity for docs without one.
+ */
+public class ComputeDistance
+        implements Supplier<Double>, DoubleSupplier
+{
+    private final PointFieldSupplier location;
+    private final Supplier<Point> origin;
+
+    @Inject
+    public ComputeDistance(
+            @ScoreVar("location") PointFieldSupplier location,
+            @ScoreVar("origin") Supplier<Point> origin)
+    {
+        this.location = requireNonNull(location);
+        this.origin = requireNonNull(origin);
+    }
+
+    @Override
+    public double getAsDouble()
+    {
+        if (!location.exists()) {
+            return Double.POSITIVE_INFINITY;
+        }
+        Point origin = this.origin.get();
+        return Geo.distanceMeters(origin.getLatitude(), origin.getLongitude(), location.getLatitude(), location.getLongitude());
+    }
+
+    @Override
+    public Double get()
+    {
+        return getAsDouble();
+    }
+}
@@ -14,13 +14,15 @@
 package com.wrmsr.search.dsl.scoring;
 
 import com.google.inject.Inject;
+import com.wrmsr.search.dsl.util.FloatSupplier;
 
 import java.util.function.Supplier;
 
 import static java.util.Objects.requireNonNull;
 
+@Memoized
 public class ComputeWeirdScore
-    implements Supplier<Float>
+    implements Supplier<Float>, FloatSupplier
 {
     private final Supplier<String> title;
     private final Supplier<String> isbn;
@@ -35,8 +37,14 @@ public class ComputeWeirdScore
     }
 
     @Override
-    public Float get()
+    public float getAsFloat()
     {
         return (float) (requireNonNull(title.get()).length() + requireNonNull(isbn.get()).length());
     }
+
+    @Override
+    public Float get()
+    {
+        return getAsFloat();
+    }
 }
@@ -0,0 +1,43 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wrmsr.search.dsl.scoring;
+
+import com.wrmsr.search.dsl.DocSpecific;
+import org.apache.lucene.index.AtomicReaderContext;
+
+import java.io.IOException;
+
+public final class DocEpoch
+        implements DocSpecific
+{
+    private long epoch;
+
+    @Override
+    public void setAtomicReaderContext(AtomicReaderContext atomicReaderContext)
+            throws IOException
+    {
+        ++epoch;
+    }
+
+    @Override
+    public void setDocId(int docId)
+    {
+        ++epoch;
+    }
+
+    public long getEpoch()
+    {
+        return epoch;
+    }
+}
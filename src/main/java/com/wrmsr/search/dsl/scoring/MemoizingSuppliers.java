@@ -0,0 +1,288 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wrmsr.search.dsl.scoring;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.inject.Inject;
+import com.google.inject.Injector;
+import com.google.inject.Provider;
+import com.wrmsr.search.dsl.util.FloatSupplier;
+
+import java.util.Map;
+import java.util.function.BiFunction;
+import java.util.function.BooleanSupplier;
+import java.util.function.DoubleSupplier;
+import java.util.function.IntSupplier;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+import static java.util.Objects.requireNonNull;
+
+public final class MemoizingSuppliers
+{
+    private MemoizingSuppliers()
+    {
+    }
+
+    public static final class MemoizedFloatSupplier
+            implements FloatSupplier, Supplier<Float>
+    {
+        private final DocEpoch docEpoch;
+        private final FloatSupplier supplier;
+        private long epoch = -1;
+        private float value;
+
+        public MemoizedFloatSupplier(DocEpoch docEpoch, FloatSupplier supplier)
+        {
+            this.docEpoch = requireNonNull(docEpoch);
+            this.supplier = requireNonNull(supplier);
+        }
+
+        @Override
+        public float getAsFloat()
+        {
+            long currentEpoch = docEpoch.getEpoch();
+            if (epoch != currentEpoch) {
+                value = supplier.getAsFloat();
+                epoch = currentEpoch;
+            }
+            return value;
+        }
+
+        @Override
+        public Float get()
+        {
+            return getAsFloat();
+        }
+    }
+
+    public static final class MemoizedDoubleSupplier
+            implements DoubleSupplier, Supplier<Double>
+    {
+        private final DocEpoch docEpoch;
+        private final DoubleSupplier supplier;
+        private long epoch = -1;
+        private double value;
+
+        public MemoizedDoubleSupplier(DocEpoch docEpoch, DoubleSupplier supplier)
+        {
+            this.docEpoch = requireNonNull(docEpoch);
+            this.supplier = requireNonNull(supplier);
+        }
+
+        @Override
+        public double getAsDouble()
+        {
+            long currentEpoch = docEpoch.getEpoch();
+            if (epoch != currentEpoch) {
+                value = supplier.getAsDouble();
+                epoch = currentEpoch;
+            }
+            return value;
+        }
+
+        @Override
+        public Double get()
+        {
+            return getAsDouble();
+        }
+    }
+
+    public static final class MemoizedIntSupplier
+            implements IntSupplier, Supplier<Integer>
+    {
+        private final DocEpoch docEpoch;
+        private final IntSupplier supplier;
+        private long epoch = -1;
+        private int value;
+
+        public MemoizedIntSupplier(DocEpoch docEpoch, IntSupplier supplier)
+        {
+            this.docEpoch = requireNonNull(docEpoch);
+            this.supplier = requireNonNull(supplier);
+        }
+
+        @Override
+        public int getAsInt()
+        {
+            long currentEpoch = docEpoch.getEpoch();
+            if (epoch != currentEpoch) {
+                value = supplier.getAsInt();
+                epoch = currentEpoch;
+            }
+            return value;
+        }
+
+        @Override
+        public Integer get()
+        {
+            return getAsInt();
+        }
+    }
+
+    public static final class MemoizedLongSupplier
+            implements LongSupplier, Supplier<Long>
+    {
+        private final DocEpoch docEpoch;
+        private final LongSupplier supplier;
+        private long epoch = -1;
+        private long value;
+
+        public MemoizedLongSupplier(DocEpoch docEpoch, LongSupplier supplier)
+        {
+            this.docEpoch = requireNonNull(docEpoch);
+            this.supplier = requireNonNull(supplier);
+        }
+
+        @Override
+        public long getAsLong()
+        {
+            long currentEpoch = docEpoch.getEpoch();
+            if (epoch != currentEpoch) {
+                value = supplier.getAsLong();
+                epoch = currentEpoch;
+            }
+            return value;
+        }
+
+        @Override
+        public Long get()
+        {
+            return getAsLong();
+        }
+    }
+
+    public static final class MemoizedBooleanSupplier
+            implements BooleanSupplier, Supplier<Boolean>
+    {
+        private final DocEpoch docEpoch;
+        private final BooleanSupplier supplier;
+        private long epoch = -1;
+        private boolean value;
+
+        public MemoizedBooleanSupplier(DocEpoch docEpoch, BooleanSupplier supplier)
+        {
+            this.docEpoch = requireNonNull(docEpoch);
+            this.supplier = requireNonNull(supplier);
+        }
+
+        @Override
+        public boolean getAsBoolean()
+        {
+            long currentEpoch = docEpoch.getEpoch();
+            if (epoch != currentEpoch) {
+                value = supplier.getAsBoolean();
+                epoch = currentEpoch;
+            }
+            return value;
+        }
+
+        @Override
+        public Boolean get()
+        {
+            return getAsBoolean();
+        }
+    }
+
+    public static final class MemoizedSupplier<T>
+            implements Supplier<T>
+    {
+        private final DocEpoch docEpoch;
+        private final Supplier<T> supplier;
+        private long epoch = -1;
+        private T value;
+
+        public MemoizedSupplier(DocEpoch docEpoch, Supplier<T> supplier)
+        {
+            this.docEpoch = requireNonNull(docEpoch);
+            this.supplier = requireNonNull(supplier);
+        }
+
+        @Override
+        public T get()
+        {
+            long currentEpoch = docEpoch.getEpoch();
+            if (epoch != currentEpoch) {
+                value = supplier.get();
+                epoch = currentEpoch;
+            }
+            return value;
+        }
+    }
+
+    private static final class Memoizer
+    {
+        private final Class<?> memoizingClass;
+        private final BiFunction<DocEpoch, Object, Object> factory;
+
+        public Memoizer(Class<?> memoizingClass, BiFunction<DocEpoch, Object, Object> factory)
+        {
+            this.memoizingClass = memoizingClass;
+            this.factory = factory;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static final Map<Class<?>, Memoizer> PRIMITIVE_MEMOIZERS = ImmutableMap.<Class<?>, Memoizer>builder()
+            .put(float.class, new Memoizer(MemoizedFloatSupplier.class, (e, s) -> new MemoizedFloatSupplier(e, (FloatSupplier) s)))
+            .put(double.class, new Memoizer(MemoizedDoubleSupplier.class, (e, s) -> new MemoizedDoubleSupplier(e, (DoubleSupplier) s)))
+            .put(int.class, new Memoizer(MemoizedIntSupplier.class, (e, s) -> new MemoizedIntSupplier(e, (IntSupplier) s)))
+            .put(long.class, new Memoizer(MemoizedLongSupplier.class, (e, s) -> new MemoizedLongSupplier(e, (LongSupplier) s)))
+            .put(boolean.class, new Memoizer(MemoizedBooleanSupplier.class, (e, s) -> new MemoizedBooleanSupplier(e, (BooleanSupplier) s)))
+            .build();
+
+    @SuppressWarnings("unchecked")
+    private static final Memoizer OBJECT_MEMOIZER = new Memoizer(MemoizedSupplier.class, (e, s) -> new MemoizedSupplier<>(e, (Supplier<Object>) s));
+
+    private static Memoizer getMemoizer(Class<?> suppliedType)
+    {
+        return PRIMITIVE_MEMOIZERS.getOrDefault(suppliedType, OBJECT_MEMOIZER);
+    }
+
+    public static Class<?> getMemoizingClass(Class<?> suppliedType)
+    {
+        return getMemoizer(suppliedType).memoizingClass;
+    }
+
+    public static Object memoize(DocEpoch docEpoch, Class<?> suppliedType, Object supplier)
+    {
+        return getMemoizer(suppliedType).factory.apply(docEpoch, supplier);
+    }
+
+    public static final class MemoizingProvider
+            implements Provider<Object>
+    {
+        private final Class<?> suppliedType;
+        private final Class<?> supplierClass;
+        private Injector injector;
+
+        public MemoizingProvider(Class<?> suppliedType, Class<?> supplierClass)
+        {
+            this.suppliedType = requireNonNull(suppliedType);
+            this.supplierClass = requireNonNull(supplierClass);
+        }
+
+        @Inject
+        public void setInjector(Injector injector)
+        {
+            this.injector = injector;
+        }
+
+        @Override
+        public Object get()
+        {
+            return memoize(injector.getInstance(DocEpoch.class), suppliedType, injector.getInstance(supplierClass));
+        }
+    }
+}
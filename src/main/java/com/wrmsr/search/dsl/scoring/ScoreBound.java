@@ -0,0 +1,34 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wrmsr.search.dsl.scoring;
+
+import org.apache.lucene.index.AtomicReaderContext;
+
+import java.io.IOException;
+
+/**
+ * Upper bound on a score var's value over every doc of a segment, bound under the same @ScoreVar as the score var
+ * itself. Implementations may derive it from per-segment statistics; collectors use it to skip docs and segments that
+ * cannot make the top hits.
+ */
+public interface ScoreBound
+{
+    float getMaxScore(AtomicReaderContext context)
+            throws IOException;
+
+    static ScoreBound constant(float maxScore)
+    {
+        return context -> maxScore;
+    }
+}
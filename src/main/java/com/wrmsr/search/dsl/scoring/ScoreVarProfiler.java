@@ -0,0 +1,77 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wrmsr.search.dsl.scoring;
+
+import com.google.common.collect.ImmutableSortedMap;
+import com.wrmsr.search.dsl.util.InvocationCounter;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Holds the invocation counters woven into compiled score var suppliers. Counters accumulate over the life of the
+ * injector; the profile of a single query is the difference between profiles taken around it, which is exact only
+ * when no other queries run concurrently.
+ */
+public final class ScoreVarProfiler
+{
+    private final int sampleRate;
+    private final Map<String, InvocationCounter> counters = new ConcurrentHashMap<>();
+
+    /**
+     * A sampleRate of zero disables profiling, otherwise one in every sampleRate invocations is timed.
+     */
+    public ScoreVarProfiler(int sampleRate)
+    {
+        checkArgument(sampleRate >= 0);
+        this.sampleRate = sampleRate;
+    }
+
+    public boolean isEnabled()
+    {
+        return sampleRate > 0;
+    }
+
+    public Optional<InvocationCounter> getCounter(String name)
+    {
+        requireNonNull(name);
+        if (!isEnabled()) {
+            return Optional.empty();
+        }
+        return Optional.of(counters.computeIfAbsent(name, n -> new InvocationCounter(sampleRate)));
+    }
+
+    public Map<String, InvocationCounter.Snapshot> getProfile()
+    {
+        ImmutableSortedMap.Builder<String, InvocationCounter.Snapshot> builder = ImmutableSortedMap.naturalOrder();
+        for (Map.Entry<String, InvocationCounter> entry : counters.entrySet()) {
+            builder.put(entry.getKey(), entry.getValue().getSnapshot());
+        }
+        return builder.build();
+    }
+
+    public Map<String, InvocationCounter.Snapshot> getProfileSince(Map<String, InvocationCounter.Snapshot> previous)
+    {
+        ImmutableSortedMap.Builder<String, InvocationCounter.Snapshot> builder = ImmutableSortedMap.naturalOrder();
+        for (Map.Entry<String, InvocationCounter.Snapshot> entry : getProfile().entrySet()) {
+            InvocationCounter.Snapshot before = previous.get(entry.getKey());
+            builder.put(entry.getKey(), before != null ? entry.getValue().minus(before) : entry.getValue());
+        }
+        return builder.build();
+    }
+}
@@ -15,12 +15,16 @@ package com.wrmsr.search.dsl.scoring;
 
 import com.google.inject.Binder;
 import com.google.inject.Key;
+import com.google.inject.util.Types;
+import com.wrmsr.search.dsl.util.PrimitiveSuppliers;
+import org.apache.commons.lang3.ClassUtils;
 
 import java.io.Serializable;
 import java.lang.annotation.Annotation;
 import java.util.Enumeration;
 import java.util.Map;
 import java.util.Properties;
+import java.util.function.Supplier;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
@@ -98,4 +102,43 @@ public final class ScoreVars
             binder.bind(Key.get(String.class, new ScoreVarImpl(propertyScoreVar))).toInstance(value);
         }
     }
+
+    public static void bindScoreBound(Binder binder, String name, ScoreBound scoreBound)
+    {
+        binder.skipSources(ScoreVars.class).bind(Key.get(ScoreBound.class, new ScoreVarImpl(name))).toInstance(scoreBound);
+    }
+
+    /**
+     * Binds a supplier implementation under both its boxed Supplier key and, for primitive score vars, its primitive
+     * supplier key (e.g. FloatSupplier) so that consumers of either resolve to the same scoped instance.
+     */
+    public static void bindScoreVarSupplier(Binder binder, String name, Class<?> suppliedType, Class<?> supplierClass, Class<? extends Annotation> scopeAnnotation)
+    {
+        bindScoreVarSupplier(binder, name, suppliedType, supplierClass, scopeAnnotation, false);
+    }
+
+    @SuppressWarnings("unchecked")
+    public static void bindScoreVarSupplier(Binder binder, String name, Class<?> suppliedType, Class<?> supplierClass, Class<? extends Annotation> scopeAnnotation, boolean memoized)
+    {
+        Binder sourceBinder = binder.skipSources(ScoreVars.class);
+        sourceBinder.bind(supplierClass).in(scopeAnnotation);
+
+        Key<?> targetKey;
+        if (memoized) {
+            Key<Object> memoizingKey = (Key<Object>) Key.get(MemoizingSuppliers.getMemoizingClass(suppliedType), new ScoreVarImpl(name));
+            sourceBinder.bind(memoizingKey).toProvider(new MemoizingSuppliers.MemoizingProvider(suppliedType, supplierClass)).in(scopeAnnotation);
+            targetKey = memoizingKey;
+        }
+        else {
+            targetKey = Key.get(supplierClass);
+        }
+
+        Class<?> boxedType = ClassUtils.primitiveToWrapper(suppliedType);
+        Key<Object> supplierKey = (Key<Object>) Key.get(Types.newParameterizedType(Supplier.class, boxedType), new ScoreVarImpl(name));
+        sourceBinder.bind(supplierKey).to(targetKey);
+        PrimitiveSuppliers.getSpecialization(suppliedType).ifPresent(s -> {
+            Key<Object> primitiveSupplierKey = (Key<Object>) Key.get(s.getSupplierInterface(), new ScoreVarImpl(name));
+            sourceBinder.bind(primitiveSupplierKey).to(targetKey);
+        });
+    }
 }
@@ -15,33 +15,83 @@ package com.wrmsr.search.dsl.scoring;
 
 import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
 import com.google.inject.Binder;
+import com.google.inject.Key;
 import com.google.inject.Module;
 import com.google.inject.TypeLiteral;
+import com.wrmsr.search.dsl.DocSpecific;
+import com.wrmsr.search.dsl.SearchScope;
 import com.wrmsr.search.dsl.SearchScoped;
 import com.wrmsr.search.dsl.util.DerivedSuppliers;
+import com.wrmsr.search.dsl.util.InvocationCounter;
+import com.wrmsr.search.dsl.util.Point;
 
 import java.lang.reflect.Method;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.function.Supplier;
 
+import static com.google.inject.multibindings.Multibinder.newSetBinder;
+
 public class ScoringModule
         implements Module
 {
+    private final boolean fused;
+    private final ScoreVarProfiler profiler;
+
+    public ScoringModule()
+    {
+        this(true);
+    }
+
+    public ScoringModule(boolean fused)
+    {
+        this(fused, 0);
+    }
+
+    /**
+     * With a nonzero profileSampleRate the compiled suppliers count their invocations into a bound ScoreVarProfiler.
+     * Fused suppliers attribute the computations inlined into them to their own score var.
+     */
+    public ScoringModule(boolean fused, int profileSampleRate)
+    {
+        this.fused = fused;
+        this.profiler = new ScoreVarProfiler(profileSampleRate);
+    }
+
     @Override
     public void configure(Binder binder)
     {
-        binder.bind(new TypeLiteral<Supplier<Float>>() {}).annotatedWith(ScoreVars.scoreVar("weird_score")).to(ComputeWeirdScore.class).in(SearchScoped.class);
+        binder.bind(DocEpoch.class).in(SearchScoped.class);
+        binder.bind(ScoreVarProfiler.class).toInstance(profiler);
+        newSetBinder(binder, DocSpecific.class).addBinding().to(DocEpoch.class);
+
+        ScoreVars.bindScoreVarSupplier(binder, "weird_score", float.class, ComputeWeirdScore.class, SearchScoped.class, ComputeWeirdScore.class.isAnnotationPresent(Memoized.class));
+
+        // origin is only required by searches whose score vars depend on it, which read it through a supplier so that
+        // pooled graphs can be reseeded with the origin of a later search
+        Key<Point> originKey = Key.get(Point.class, ScoreVars.scoreVar("origin"));
+        binder.bind(originKey).toProvider(SearchScope.<Point>seededKeyProvider()).in(SearchScoped.class);
+        binder.bind(new TypeLiteral<Supplier<Point>>() {}).annotatedWith(ScoreVars.scoreVar("origin")).toProvider(SearchScope.seededSupplierProvider(originKey)).in(SearchScoped.class);
+        ScoreVars.bindScoreVarSupplier(binder, "distance", double.class, ComputeDistance.class, SearchScoped.class);
 
         try {
-            List<Method> methods = ImmutableList.copyOf(Computations.class.getDeclaredMethods());
-            for (Method method : methods) {
-                Optional<ScoreVar> suppliedScoreVar = Arrays.stream(method.getDeclaredAnnotations()).filter(ScoreVar.class::isInstance).findFirst().map(ScoreVar.class::cast);
-                if (suppliedScoreVar.isPresent()) {
-                    Class supplierClazz = DerivedSuppliers.compile(method, ScoringModule.class.getClassLoader());
-                    binder.bind(new TypeLiteral<Supplier<Float>>() {}).annotatedWith(ScoreVars.scoreVar(suppliedScoreVar.get().value())).to(supplierClazz).in(SearchScoped.class);
+            Map<ScoreVar, Method> computations = getComputations(Computations.class);
+            // memoized computations are shared boundaries between fused graphs rather than being inlined into each
+            Map<ScoreVar, Method> inlineTargets = Maps.filterValues(computations, m -> !m.isAnnotationPresent(Memoized.class));
+            for (Map.Entry<ScoreVar, Method> computation : computations.entrySet()) {
+                Method method = computation.getValue();
+                Optional<InvocationCounter> counter = profiler.getCounter(computation.getKey().value());
+                Class supplierClazz = fused ?
+                        DerivedSuppliers.compileFused(method, inlineTargets, counter, ScoringModule.class.getClassLoader()) :
+                        DerivedSuppliers.compile(method, counter, ScoringModule.class.getClassLoader());
+                ScoreVars.bindScoreVarSupplier(binder, computation.getKey().value(), method.getReturnType(), supplierClazz, SearchScoped.class, method.isAnnotationPresent(Memoized.class));
+                if (method.isAnnotationPresent(MaxScore.class)) {
+                    ScoreVars.bindScoreBound(binder, computation.getKey().value(), ScoreBound.constant(method.getAnnotation(MaxScore.class).value()));
                 }
             }
         }
@@ -49,4 +99,17 @@ public class ScoringModule
             throw Throwables.propagate(e);
         }
     }
+
+    public static Map<ScoreVar, Method> getComputations(Class<?> clazz)
+    {
+        ImmutableMap.Builder<ScoreVar, Method> builder = ImmutableMap.builder();
+        List<Method> methods = ImmutableList.copyOf(clazz.getDeclaredMethods());
+        for (Method method : methods) {
+            Optional<ScoreVar> suppliedScoreVar = Arrays.stream(method.getDeclaredAnnotations()).filter(ScoreVar.class::isInstance).findFirst().map(ScoreVar.class::cast);
+            if (suppliedScoreVar.isPresent()) {
+                builder.put(suppliedScoreVar.get(), method);
+            }
+        }
+        return builder.build();
+    }
 }
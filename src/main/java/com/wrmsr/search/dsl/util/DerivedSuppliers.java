@@ -23,6 +23,9 @@ import com.facebook.presto.bytecode.MethodDefinition;
 import com.facebook.presto.bytecode.Parameter;
 import com.facebook.presto.bytecode.ParameterizedType;
 import com.facebook.presto.bytecode.Scope;
+import com.facebook.presto.bytecode.Variable;
+import com.facebook.presto.bytecode.control.ForLoop;
+import com.facebook.presto.bytecode.control.IfStatement;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import org.apache.commons.lang3.ClassUtils;
@@ -30,8 +33,17 @@ import org.apache.commons.lang3.ClassUtils;
 import javax.inject.Inject;
 
 import java.lang.annotation.Annotation;
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.IntConsumer;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
@@ -44,6 +56,13 @@ import static com.facebook.presto.bytecode.Access.a;
 import static com.facebook.presto.bytecode.CompilerUtils.defineClass;
 import static com.facebook.presto.bytecode.Parameter.arg;
 import static com.facebook.presto.bytecode.ParameterizedType.type;
+import static com.facebook.presto.bytecode.expression.BytecodeExpressions.constantInt;
+import static com.facebook.presto.bytecode.expression.BytecodeExpressions.constantNull;
+import static com.facebook.presto.bytecode.expression.BytecodeExpressions.equal;
+import static com.facebook.presto.bytecode.expression.BytecodeExpressions.getStatic;
+import static com.facebook.presto.bytecode.expression.BytecodeExpressions.lessThan;
+import static com.facebook.presto.bytecode.expression.BytecodeExpressions.newArray;
+import static com.facebook.presto.bytecode.expression.BytecodeExpressions.or;
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkState;
 import static com.google.common.collect.Iterables.getOnlyElement;
@@ -54,10 +73,22 @@ import static java.util.Objects.requireNonNull;
 /*
 TODO:
 - Allowing passing {name: class} map for Supplier conversion
-- unbox errwhere
 */
 public final class DerivedSuppliers
 {
+    private static final java.lang.reflect.Method COUNTER_START;
+    private static final java.lang.reflect.Method COUNTER_STOP;
+
+    static {
+        try {
+            COUNTER_START = InvocationCounter.class.getMethod("start", int.class);
+            COUNTER_STOP = InvocationCounter.class.getMethod("stop", long.class);
+        }
+        catch (NoSuchMethodException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
     private DerivedSuppliers()
     {
     }
@@ -68,46 +99,245 @@ public final class DerivedSuppliers
         private final java.lang.reflect.Type boxedType;
         private final ParameterizedType parameterizedType;
         private final ParameterizedType parameterizedBoxedType;
+        private final Optional<PrimitiveSuppliers.Specialization> specialization;
+        private final ParameterizedType supplierType;
         private final List<Annotation> annotations;
         private final String name;
 
         public TargetParameter(java.lang.reflect.Method method, int index)
+        {
+            this(method, index, method.getParameters()[index].getName());
+        }
+
+        public TargetParameter(java.lang.reflect.Method method, int index, String name)
         {
             type = method.getGenericParameterTypes()[index];
             boxedType = boxType(type);
             parameterizedType = fromReflectType(type);
             parameterizedBoxedType = fromReflectType(boxedType);
+            specialization = type instanceof Class ? PrimitiveSuppliers.getSpecialization((Class<?>) type) : Optional.empty();
+            supplierType = specialization.isPresent() ? type(specialization.get().getSupplierInterface()) : type(Supplier.class, parameterizedBoxedType);
             annotations = ImmutableList.copyOf(method.getParameterAnnotations()[index]);
-            name = method.getParameters()[index].getName();
+            this.name = name;
+        }
+
+        public List<Object> getKey()
+        {
+            return ImmutableList.of(type, annotations);
+        }
+    }
+
+    private static final class FusedGraph
+    {
+        private final List<java.lang.reflect.Method> methods = new ArrayList<>();
+        private final Map<java.lang.reflect.Method, List<Object>> inputKeys = new HashMap<>();
+        private final Map<List<Object>, TargetParameter> leaves = new LinkedHashMap<>();
+        private final Map<? extends Annotation, java.lang.reflect.Method> inlineTargets;
+
+        public FusedGraph(java.lang.reflect.Method root, Map<? extends Annotation, java.lang.reflect.Method> inlineTargets)
+        {
+            this.inlineTargets = inlineTargets;
+            resolve(root, new HashSet<>());
+        }
+
+        private void resolve(java.lang.reflect.Method method, Set<java.lang.reflect.Method> visiting)
+        {
+            if (inputKeys.containsKey(method)) {
+                return;
+            }
+            checkArgument((method.getModifiers() & STATIC.getModifier()) > 0, "method must be static: %s", method);
+            checkArgument(visiting.add(method), "dependency cycle through %s", method);
+
+            ImmutableList.Builder<Object> inputs = ImmutableList.builder();
+            for (int i = 0; i < method.getParameterCount(); ++i) {
+                Optional<java.lang.reflect.Method> dependency = Arrays.stream(method.getParameterAnnotations()[i])
+                        .filter(inlineTargets::containsKey)
+                        .findFirst()
+                        .map(inlineTargets::get);
+                if (dependency.isPresent()) {
+                    checkArgument(
+                            dependency.get().getGenericReturnType().equals(method.getGenericParameterTypes()[i]),
+                            "type mismatch between %s and parameter %s of %s", dependency.get(), i, method);
+                    resolve(dependency.get(), visiting);
+                    inputs.add(dependency.get());
+                }
+                else {
+                    TargetParameter leaf = new TargetParameter(method, i, "leaf" + leaves.size());
+                    List<Object> key = leaf.getKey();
+                    if (!leaves.containsKey(key)) {
+                        leaves.put(key, leaf);
+                    }
+                    inputs.add(key);
+                }
+            }
+
+            visiting.remove(method);
+            inputKeys.put(method, inputs.build());
+            methods.add(method);
         }
     }
 
+    @FunctionalInterface
+    private interface ValueCompiler
+    {
+        void compile(BytecodeBlock body, Scope scope);
+    }
+
+    public static final String INVOCATION_COUNTER_FIELD = "invocationCounter";
+
     public static <T> Class<? extends Supplier<T>> compile(java.lang.reflect.Method target, ClassLoader parentClassLoader)
             throws ReflectiveOperationException
+    {
+        return compile(target, Optional.empty(), parentClassLoader);
+    }
+
+    /**
+     * With an invocation counter, every get() of the compiled supplier counts itself and the sampled time of the target
+     * call, after its arguments have been supplied, into it.
+     */
+    public static <T> Class<? extends Supplier<T>> compile(java.lang.reflect.Method target, Optional<InvocationCounter> invocationCounter, ClassLoader parentClassLoader)
+            throws ReflectiveOperationException
     {
         checkArgument((target.getModifiers() & STATIC.getModifier()) > 0);
         List<TargetParameter> targetParameters = IntStream.range(0, target.getParameterCount()).boxed().map(i -> new TargetParameter(target, i)).collect(toImmutableList());
 
-        java.lang.reflect.Type targetReturnType = target.getGenericReturnType();
-        java.lang.reflect.Type suppliedType = boxType(targetReturnType);
-        checkArgument(suppliedType instanceof Class);
+        ClassDefinition classDefinition = declareSupplierClass("DerivedSupplier__" + target.getDeclaringClass().getName() + "__" + target.getName(), target.getGenericReturnType());
 
-        ClassDefinition classDefinition = new ClassDefinition(
-                a(PUBLIC, FINAL),
-                CompilerUtils.makeClassName("DerivedSupplier__" + target.getDeclaringClass().getName() + "__" + target.getName()),
-                type(Object.class),
-                type(Supplier.class, fromReflectType(suppliedType)));
-
-        targetParameters.forEach(p -> classDefinition.addField(a(PRIVATE, FINAL), p.name, type(Supplier.class, p.parameterizedBoxedType)));
+        targetParameters.forEach(p -> classDefinition.addField(a(PRIVATE, FINAL), p.name, p.supplierType));
         Map<String, FieldDefinition> classFieldDefinitionMap = classDefinition.getFields().stream().collect(toImmutableMap(f -> f.getName(), f -> f));
 
+        Optional<FieldDefinition> counterField = invocationCounter.map(c -> declareCounterField(classDefinition));
+
         compileConstructor(classDefinition, classFieldDefinitionMap, targetParameters);
-        compileGetter(classDefinition, classFieldDefinitionMap, target, targetParameters);
+        compileGetter(classDefinition, target.getReturnType(), counted(
+                counterField,
+                target.getReturnType(),
+                (body, scope) -> loadArguments(body, scope, classFieldDefinitionMap, targetParameters),
+                (body, scope) -> body.invokeStatic(target)));
+
+        Class<? extends Supplier<T>> clazz = defineSupplierClass(classDefinition, parentClassLoader);
+        setCounterField(clazz, invocationCounter);
+        return clazz;
+    }
+
+    /**
+     * Compiles root and every static method it transitively depends on into a single supplier. Parameters annotated
+     * with a key of inlineTargets are computed by inlining the corresponding method, each at most once per get(), and
+     * all remaining parameters become injected constructor dependencies.
+     */
+    public static <T> Class<? extends Supplier<T>> compileFused(java.lang.reflect.Method root, Map<? extends Annotation, java.lang.reflect.Method> inlineTargets, ClassLoader parentClassLoader)
+            throws ReflectiveOperationException
+    {
+        return compileFused(root, inlineTargets, Optional.empty(), parentClassLoader);
+    }
+
+    /**
+     * With an invocation counter, every get() or block of the compiled supplier counts itself and the sampled time of
+     * the inlined methods into it. Both time the same region: the fused computation once its leaves have been
+     * supplied, so neither the leaf suppliers nor positioning a block on its docs are included.
+     */
+    public static <T> Class<? extends Supplier<T>> compileFused(java.lang.reflect.Method root, Map<? extends Annotation, java.lang.reflect.Method> inlineTargets, Optional<InvocationCounter> invocationCounter, ClassLoader parentClassLoader)
+            throws ReflectiveOperationException
+    {
+        FusedGraph graph = new FusedGraph(root, inlineTargets);
+        List<TargetParameter> leaves = ImmutableList.copyOf(graph.leaves.values());
+
+        // float graphs over non-generic inputs can also be computed a block of docs at a time
+        boolean block = root.getReturnType() == float.class && leaves.stream().allMatch(p -> p.type instanceof Class);
+        ClassDefinition classDefinition = declareSupplierClass(
+                "FusedSupplier__" + root.getDeclaringClass().getName() + "__" + root.getName(),
+                root.getGenericReturnType(),
+                block ? ImmutableList.of(type(FloatBlockSupplier.class)) : ImmutableList.of());
+
+        leaves.forEach(p -> classDefinition.addField(a(PRIVATE, FINAL), p.name, p.supplierType));
+        Map<String, FieldDefinition> classFieldDefinitionMap = classDefinition.getFields().stream().collect(toImmutableMap(f -> f.getName(), f -> f));
+
+        Optional<FieldDefinition> counterField = invocationCounter.map(c -> declareCounterField(classDefinition));
+
+        compileConstructor(classDefinition, classFieldDefinitionMap, leaves);
+        compileGetter(classDefinition, root.getReturnType(), counted(
+                counterField,
+                root.getReturnType(),
+                (body, scope) -> loadFusedLeaves(body, scope, graph, (b, s, leaf) -> loadArgument(b, s, classFieldDefinitionMap, leaf)),
+                (body, scope) -> compileFusedValue(body, scope, graph)));
+        if (block) {
+            compileBlockGetter(classDefinition, classFieldDefinitionMap, graph, counterField);
+        }
 
-        Class clazz = defineClass(classDefinition, Object.class, ImmutableMap.of(), new DynamicClassLoader(parentClassLoader));
+        Class<? extends Supplier<T>> clazz = defineSupplierClass(classDefinition, parentClassLoader);
+        setCounterField(clazz, invocationCounter);
         return clazz;
     }
 
+    @SuppressWarnings("unchecked")
+    private static <T> Class<? extends Supplier<T>> defineSupplierClass(ClassDefinition classDefinition, ClassLoader parentClassLoader)
+    {
+        // the generated class implements Supplier<T> for the return type it was compiled from
+        return (Class<? extends Supplier<T>>) defineClass(classDefinition, Object.class, ImmutableMap.of(), new DynamicClassLoader(parentClassLoader));
+    }
+
+    private static FieldDefinition declareCounterField(ClassDefinition classDefinition)
+    {
+        return classDefinition.declareField(a(PUBLIC, STATIC), INVOCATION_COUNTER_FIELD, InvocationCounter.class);
+    }
+
+    private static void setCounterField(Class<?> clazz, Optional<InvocationCounter> invocationCounter)
+            throws ReflectiveOperationException
+    {
+        if (invocationCounter.isPresent()) {
+            clazz.getField(INVOCATION_COUNTER_FIELD).set(null, invocationCounter.get());
+        }
+    }
+
+    /**
+     * Compiles the inputs of a value followed by the value itself, bracketing only the latter with calls to the
+     * counter in counterField, if any.
+     */
+    private static ValueCompiler counted(Optional<FieldDefinition> counterField, Class<?> valueClass, ValueCompiler inputCompiler, ValueCompiler valueCompiler)
+    {
+        if (!counterField.isPresent()) {
+            return (body, scope) -> {
+                inputCompiler.compile(body, scope);
+                valueCompiler.compile(body, scope);
+            };
+        }
+        return (body, scope) -> {
+            Variable start = scope.declareVariable(long.class, "counterStart");
+            Variable value = scope.declareVariable(valueClass, "countedValue");
+            inputCompiler.compile(body, scope);
+            body.append(start.set(getStatic(counterField.get()).invoke(COUNTER_START, constantInt(1))));
+            valueCompiler.compile(body, scope);
+            body
+                    .putVariable(value)
+                    .append(getStatic(counterField.get()).invoke(COUNTER_STOP, start))
+                    .getVariable(value);
+        };
+    }
+
+    private static ClassDefinition declareSupplierClass(String name, java.lang.reflect.Type targetReturnType)
+    {
+        return declareSupplierClass(name, targetReturnType, ImmutableList.of());
+    }
+
+    private static ClassDefinition declareSupplierClass(String name, java.lang.reflect.Type targetReturnType, List<ParameterizedType> extraInterfaceTypes)
+    {
+        java.lang.reflect.Type suppliedType = boxType(targetReturnType);
+        checkArgument(suppliedType instanceof Class);
+
+        Optional<PrimitiveSuppliers.Specialization> returnSpecialization = targetReturnType instanceof Class ? PrimitiveSuppliers.getSpecialization((Class<?>) targetReturnType) : Optional.empty();
+        List<ParameterizedType> interfaceTypes = ImmutableList.<ParameterizedType>builder()
+                .add(type(Supplier.class, fromReflectType(suppliedType)))
+                .addAll(returnSpecialization.map(s -> ImmutableList.of(type(s.getSupplierInterface()))).orElse(ImmutableList.of()))
+                .addAll(extraInterfaceTypes)
+                .build();
+
+        return new ClassDefinition(
+                a(PUBLIC, FINAL),
+                CompilerUtils.makeClassName(name),
+                type(Object.class),
+                interfaceTypes.toArray(new ParameterizedType[interfaceTypes.size()]));
+    }
+
     private static void compileConstructor(ClassDefinition classDefinition, Map<String, FieldDefinition> classFieldDefinitionMap, List<TargetParameter> targetParameters)
             throws ReflectiveOperationException
     {
@@ -138,38 +368,184 @@ public final class DerivedSuppliers
                 .ret();
     }
 
-    private static void compileGetter(ClassDefinition classDefinition, Map<String, FieldDefinition> classFieldDefinitionMap, java.lang.reflect.Method target, List<TargetParameter> targetParameters)
+    private static void compileGetter(ClassDefinition classDefinition, Class<?> targetReturnClass, ValueCompiler valueCompiler)
     {
-        java.lang.reflect.Type targetReturnType = target.getGenericReturnType();
-        Class<?> targetReturnClass = (Class<?>) targetReturnType;
         Class<?> boxedTargetReturnClass = requireNonNull(ClassUtils.primitiveToWrapper(targetReturnClass));
         checkArgument(targetReturnClass == boxedTargetReturnClass || targetReturnClass.isPrimitive());
+        Optional<PrimitiveSuppliers.Specialization> returnSpecialization = PrimitiveSuppliers.getSpecialization(targetReturnClass);
 
         MethodDefinition methodDefinition = classDefinition.declareMethod(a(PUBLIC, FINAL), "get", type(Object.class));
         methodDefinition.declareAnnotation(Override.class);
         Scope scope = methodDefinition.getScope();
         BytecodeBlock body = methodDefinition.getBody();
 
+        if (returnSpecialization.isPresent()) {
+            MethodDefinition primitiveMethodDefinition = compilePrimitiveGetter(classDefinition, returnSpecialization.get(), valueCompiler);
+            body
+                    .getVariable(scope.getThis())
+                    .invokeVirtual(primitiveMethodDefinition);
+        }
+        else {
+            valueCompiler.compile(body, scope);
+        }
         if (targetReturnClass.isPrimitive()) {
+            body.invokeStatic(boxedTargetReturnClass, "valueOf", boxedTargetReturnClass, targetReturnClass);
+        }
+        body.retObject();
+    }
+
+    private static MethodDefinition compilePrimitiveGetter(ClassDefinition classDefinition, PrimitiveSuppliers.Specialization specialization, ValueCompiler valueCompiler)
+    {
+        MethodDefinition methodDefinition = classDefinition.declareMethod(a(PUBLIC, FINAL), specialization.getGetterName(), type(specialization.getPrimitiveType()));
+        methodDefinition.declareAnnotation(Override.class);
+        Scope scope = methodDefinition.getScope();
+        BytecodeBlock body = methodDefinition.getBody();
+
+        valueCompiler.compile(body, scope);
+        body.ret(specialization.getPrimitiveType());
+        return methodDefinition;
+    }
+
+    @FunctionalInterface
+    private interface LeafLoader
+    {
+        void load(BytecodeBlock body, Scope scope, TargetParameter leaf);
+    }
+
+    /**
+     * Compiles getAsFloats in two loops over the block: the first positions the doc-specific inputs on each doc and
+     * gathers every leaf into an array, the second computes the whole fused graph from those arrays alone. Only the
+     * second loop is counted, matching what get() counts for a single doc.
+     */
+    private static void compileBlockGetter(ClassDefinition classDefinition, Map<String, FieldDefinition> classFieldDefinitionMap, FusedGraph graph, Optional<FieldDefinition> counterField)
+            throws ReflectiveOperationException
+    {
+        java.lang.reflect.Method accept = IntConsumer.class.getMethod("accept", int.class);
+        List<TargetParameter> leaves = ImmutableList.copyOf(graph.leaves.values());
+        Map<String, FieldDefinition> blockFieldDefinitionMap = leaves.stream().collect(toImmutableMap(
+                p -> p.name,
+                p -> classDefinition.declareField(a(PRIVATE), p.name + "Block", type(Array.newInstance((Class<?>) p.type, 0).getClass()))));
+
+        Parameter setDocId = arg("setDocId", IntConsumer.class);
+        Parameter docIds = arg("docIds", int[].class);
+        Parameter count = arg("count", int.class);
+        Parameter values = arg("values", float[].class);
+        MethodDefinition methodDefinition = classDefinition.declareMethod(a(PUBLIC, FINAL), "getAsFloats", type(void.class), setDocId, docIds, count, values);
+        methodDefinition.declareAnnotation(Override.class);
+        Scope scope = methodDefinition.getScope();
+        BytecodeBlock body = methodDefinition.getBody();
+        Variable thisVariable = scope.getThis();
+
+        Map<String, Variable> blocks = new HashMap<>();
+        for (TargetParameter leaf : leaves) {
+            FieldDefinition blockField = blockFieldDefinitionMap.get(leaf.name);
+            Variable block = scope.declareVariable(blockField.getType(), leaf.name + "Block");
             body
-                    .newObject(boxedTargetReturnClass)
-                    .dup();
+                    .append(block.set(thisVariable.getField(blockField)))
+                    .append(new IfStatement()
+                            .condition(or(equal(block, constantNull(blockField.getType())), lessThan(block.length(), count)))
+                            .ifTrue(new BytecodeBlock()
+                                    .append(block.set(newArray(blockField.getType(), count)))
+                                    .append(thisVariable.setField(blockField, block))));
+            blocks.put(leaf.name, block);
+        }
+
+        Variable i = scope.declareVariable(int.class, "i");
+        if (!leaves.isEmpty()) {
+            BytecodeBlock gather = new BytecodeBlock()
+                    .append(setDocId.invoke(accept, docIds.getElement(i)));
+            for (TargetParameter leaf : leaves) {
+                Variable value = scope.declareVariable(leaf.parameterizedType, leaf.name + "Value");
+                loadArgument(gather, scope, classFieldDefinitionMap, leaf);
+                gather
+                        .putVariable(value)
+                        .append(blocks.get(leaf.name).setElement(i, value));
+            }
+            body.append(new ForLoop()
+                    .initialize(i.set(constantInt(0)))
+                    .condition(lessThan(i, count))
+                    .update(i.increment())
+                    .body(gather));
+        }
+
+        Variable value = scope.declareVariable(float.class, "value");
+        BytecodeBlock compute = new BytecodeBlock();
+        loadFusedLeaves(compute, scope, graph, (b, s, leaf) -> b.append(blocks.get(leaf.name).getElement(i)));
+        compileFusedValue(compute, scope, graph);
+        compute
+                .putVariable(value)
+                .append(values.setElement(i, value));
+        Optional<Variable> start = counterField.map(f -> scope.declareVariable(long.class, "counterStart"));
+        if (start.isPresent()) {
+            body.append(start.get().set(getStatic(counterField.get()).invoke(COUNTER_START, count)));
+        }
+        body.append(new ForLoop()
+                .initialize(i.set(constantInt(0)))
+                .condition(lessThan(i, count))
+                .update(i.increment())
+                .body(compute));
+        if (start.isPresent()) {
+            body.append(getStatic(counterField.get()).invoke(COUNTER_STOP, start.get()));
+        }
+        body.ret();
+    }
+
+    /**
+     * Loads every leaf of the graph into a local named after it, where compileFusedValue picks them up.
+     */
+    private static void loadFusedLeaves(BytecodeBlock body, Scope scope, FusedGraph graph, LeafLoader leafLoader)
+    {
+        for (TargetParameter leaf : graph.leaves.values()) {
+            Variable variable = scope.declareVariable(leaf.parameterizedType, leaf.name);
+            leafLoader.load(body, scope, leaf);
+            body.putVariable(variable);
         }
+    }
+
+    private static void compileFusedValue(BytecodeBlock body, Scope scope, FusedGraph graph)
+    {
+        Map<Object, Variable> variables = new HashMap<>();
+        for (Map.Entry<List<Object>, TargetParameter> leaf : graph.leaves.entrySet()) {
+            variables.put(leaf.getKey(), scope.getVariable(leaf.getValue().name));
+        }
+
+        java.lang.reflect.Method root = graph.methods.get(graph.methods.size() - 1);
+        for (java.lang.reflect.Method method : graph.methods) {
+            for (Object inputKey : graph.inputKeys.get(method)) {
+                body.getVariable(requireNonNull(variables.get(inputKey)));
+            }
+            body.invokeStatic(method);
+            if (method != root) {
+                Variable variable = scope.declareVariable(fromReflectType(method.getGenericReturnType()), "node" + variables.size());
+                body.putVariable(variable);
+                variables.put(method, variable);
+            }
+        }
+    }
+
+    private static void loadArguments(BytecodeBlock body, Scope scope, Map<String, FieldDefinition> classFieldDefinitionMap, List<TargetParameter> targetParameters)
+    {
         for (TargetParameter targetParameter : targetParameters) {
+            loadArgument(body, scope, classFieldDefinitionMap, targetParameter);
+        }
+    }
+
+    private static void loadArgument(BytecodeBlock body, Scope scope, Map<String, FieldDefinition> classFieldDefinitionMap, TargetParameter targetParameter)
+    {
+        body
+                .getVariable(scope.getThis())
+                .getField(classFieldDefinitionMap.get(targetParameter.name));
+        if (targetParameter.specialization.isPresent()) {
+            PrimitiveSuppliers.Specialization specialization = targetParameter.specialization.get();
+            body.invokeInterface(specialization.getSupplierInterface(), specialization.getGetterName(), specialization.getPrimitiveType());
+        }
+        else {
             body
-                    .getVariable(scope.getThis())
-                    .getField(classFieldDefinitionMap.get(targetParameter.name))
                     .invokeInterface(Supplier.class, "get", Object.class)
                     .checkCast(targetParameter.parameterizedBoxedType);
             Class<?> targetParameterClass = (Class<?>) targetParameter.type;
             unboxValue(body, targetParameterClass);
         }
-        body.invokeStatic(target);
-        if (targetReturnClass.isPrimitive()) {
-            body
-                    .invokeConstructor(boxedTargetReturnClass, targetReturnClass);
-        }
-        body.retObject();
     }
 
     private static void unboxValue(BytecodeBlock body, Class<?> clazz)
@@ -0,0 +1,121 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wrmsr.search.dsl.util;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Counts invocations of generated code, timing a random sample of them so the clock is read on only a fraction of
+ * calls. Generated bodies bracket their work with start and stop.
+ */
+public final class InvocationCounter
+{
+    public static final long NOT_SAMPLED = Long.MIN_VALUE;
+
+    private final int sampleMask;
+    private final LongAdder invocations = new LongAdder();
+    private final LongAdder sampledInvocations = new LongAdder();
+    private final LongAdder sampledNanos = new LongAdder();
+
+    /**
+     * Times on average one call in every sampleRate, which must be a power of two.
+     */
+    public InvocationCounter(int sampleRate)
+    {
+        checkArgument(sampleRate > 0 && Integer.bitCount(sampleRate) == 1, "sample rate must be a positive power of two");
+        this.sampleMask = sampleRate - 1;
+    }
+
+    /**
+     * Counts count invocations performed by a single call, returning its start time when sampled and NOT_SAMPLED
+     * otherwise.
+     */
+    public long start(int count)
+    {
+        invocations.add(count);
+        if (sampleMask != 0 && (ThreadLocalRandom.current().nextInt() & sampleMask) != 0) {
+            return NOT_SAMPLED;
+        }
+        sampledInvocations.add(count);
+        return System.nanoTime();
+    }
+
+    public void stop(long startNanos)
+    {
+        if (startNanos != NOT_SAMPLED) {
+            sampledNanos.add(System.nanoTime() - startNanos);
+        }
+    }
+
+    public Snapshot getSnapshot()
+    {
+        return new Snapshot(invocations.sum(), sampledInvocations.sum(), sampledNanos.sum());
+    }
+
+    public static final class Snapshot
+    {
+        private final long invocations;
+        private final long sampledInvocations;
+        private final long sampledNanos;
+
+        public Snapshot(long invocations, long sampledInvocations, long sampledNanos)
+        {
+            this.invocations = invocations;
+            this.sampledInvocations = sampledInvocations;
+            this.sampledNanos = sampledNanos;
+        }
+
+        public long getInvocations()
+        {
+            return invocations;
+        }
+
+        public long getSampledInvocations()
+        {
+            return sampledInvocations;
+        }
+
+        public long getSampledNanos()
+        {
+            return sampledNanos;
+        }
+
+        /**
+         * Cumulative nanos of every invocation, extrapolated from the sampled ones.
+         */
+        public long getEstimatedNanos()
+        {
+            return sampledInvocations > 0 ? (long) ((double) sampledNanos * invocations / sampledInvocations) : 0;
+        }
+
+        public Snapshot minus(Snapshot other)
+        {
+            return new Snapshot(invocations - other.invocations, sampledInvocations - other.sampledInvocations, sampledNanos - other.sampledNanos);
+        }
+
+        @Override
+        public String toString()
+        {
+            return "Snapshot{" +
+                    "invocations=" + invocations +
+                    ", sampledInvocations=" + sampledInvocations +
+                    ", sampledNanos=" + sampledNanos +
+                    ", estimatedNanos=" + getEstimatedNanos() +
+                    '}';
+        }
+    }
+}
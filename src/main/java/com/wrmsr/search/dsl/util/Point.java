@@ -16,6 +16,8 @@ package com.wrmsr.search.dsl.util;
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
+import java.util.Objects;
+
 public class Point
 {
     private final float latitude;
@@ -41,4 +43,33 @@ public class Point
     {
         return longitude;
     }
+
+    @Override
+    public boolean equals(Object o)
+    {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        Point point = (Point) o;
+        return Float.compare(point.latitude, latitude) == 0 &&
+                Float.compare(point.longitude, longitude) == 0;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Objects.hash(latitude, longitude);
+    }
+
+    @Override
+    public String toString()
+    {
+        return "Point{" +
+                "latitude=" + latitude +
+                ", longitude=" + longitude +
+                '}';
+    }
 }
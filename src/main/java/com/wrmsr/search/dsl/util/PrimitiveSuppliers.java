@@ -0,0 +1,81 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wrmsr.search.dsl.util;
+
+import com.google.common.collect.ImmutableMap;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.BooleanSupplier;
+import java.util.function.DoubleSupplier;
+import java.util.function.IntSupplier;
+import java.util.function.LongSupplier;
+
+import static java.util.Objects.requireNonNull;
+
+public final class PrimitiveSuppliers
+{
+    private PrimitiveSuppliers()
+    {
+    }
+
+    public static final class Specialization
+    {
+        private final Class<?> primitiveType;
+        private final Class<?> boxedType;
+        private final Class<?> supplierInterface;
+        private final String getterName;
+
+        public Specialization(Class<?> primitiveType, Class<?> boxedType, Class<?> supplierInterface, String getterName)
+        {
+            this.primitiveType = requireNonNull(primitiveType);
+            this.boxedType = requireNonNull(boxedType);
+            this.supplierInterface = requireNonNull(supplierInterface);
+            this.getterName = requireNonNull(getterName);
+        }
+
+        public Class<?> getPrimitiveType()
+        {
+            return primitiveType;
+        }
+
+        public Class<?> getBoxedType()
+        {
+            return boxedType;
+        }
+
+        public Class<?> getSupplierInterface()
+        {
+            return supplierInterface;
+        }
+
+        public String getGetterName()
+        {
+            return getterName;
+        }
+    }
+
+    private static final Map<Class<?>, Specialization> SPECIALIZATIONS = ImmutableMap.<Class<?>, Specialization>builder()
+            .put(boolean.class, new Specialization(boolean.class, Boolean.class, BooleanSupplier.class, "getAsBoolean"))
+            .put(int.class, new Specialization(int.class, Integer.class, IntSupplier.class, "getAsInt"))
+            .put(long.class, new Specialization(long.class, Long.class, LongSupplier.class, "getAsLong"))
+            .put(float.class, new Specialization(float.class, Float.class, FloatSupplier.class, "getAsFloat"))
+            .put(double.class, new Specialization(double.class, Double.class, DoubleSupplier.class, "getAsDouble"))
+            .build();
+
+    public static Optional<Specialization> getSpecialization(Class<?> primitiveType)
+    {
+        return Optional.ofNullable(SPECIALIZATIONS.get(primitiveType));
+    }
+}
@@ -1,14 +1,22 @@
 package com.wrmsr.search.dsl.util;
 
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Maps;
+import com.google.inject.Inject;
 import com.google.inject.Key;
 import com.google.inject.OutOfScopeException;
 import com.google.inject.Provider;
 import com.google.inject.Scope;
 
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkState;
+import static java.util.Objects.requireNonNull;
 
 /**
  * Scopes a single execution of a block of code. Apply this scope with a
@@ -53,27 +61,178 @@ public class SimpleScope
         }
     };
 
-    private final ThreadLocal<Map<Key<?>, Object>> values = new ThreadLocal<>();
+    /**
+     * An immutable snapshot of the values seeded into a scoping block, used to enter an equivalently seeded child
+     * block on this or any other thread.
+     */
+    public static final class Seeds
+    {
+        private final Map<Key<?>, Object> values;
+
+        private Seeds(Map<Key<?>, Object> values)
+        {
+            this.values = ImmutableMap.copyOf(values);
+        }
+
+        public Set<Key<?>> getKeys()
+        {
+            return values.keySet();
+        }
+
+        @SuppressWarnings("unchecked")
+        public <T> T get(Key<T> key)
+        {
+            checkState(values.containsKey(key), "No value for the key %s was seeded in this scope", key);
+            return (T) values.get(key);
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            Seeds seeds = (Seeds) o;
+            return values.equals(seeds.values);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return values.hashCode();
+        }
+    }
+
+    /**
+     * The seeds of the scoping block a graph of scoped objects was built in. Replacing them with seeds for the same
+     * keys lets the graph be reused in a later block, as long as its objects read seeded values through
+     * {@link #seededSupplierProvider} suppliers rather than having the values injected.
+     */
+    public static final class SeedsHolder
+    {
+        private volatile Seeds seeds;
+
+        public SeedsHolder(Seeds seeds)
+        {
+            this.seeds = requireNonNull(seeds);
+        }
+
+        public Seeds get()
+        {
+            return seeds;
+        }
+
+        public void set(Seeds seeds)
+        {
+            checkArgument(seeds.getKeys().equals(this.seeds.getKeys()), "Seeds must have the same keys");
+            this.seeds = seeds;
+        }
+
+        public <T> Supplier<T> supplier(Key<T> key)
+        {
+            // fail while the graph is built, as injecting an unseeded key would
+            seeds.get(key);
+            return () -> seeds.get(key);
+        }
+    }
+
+    private static final class SeededSupplierProvider<T>
+            implements Provider<Supplier<T>>
+    {
+        private final Key<T> key;
+        private Provider<SeedsHolder> seedsHolder;
+
+        private SeededSupplierProvider(Key<T> key)
+        {
+            this.key = requireNonNull(key);
+        }
+
+        @Inject
+        public void setSeedsHolder(Provider<SeedsHolder> seedsHolder)
+        {
+            this.seedsHolder = seedsHolder;
+        }
+
+        @Override
+        public Supplier<T> get()
+        {
+            return seedsHolder.get().supplier(key);
+        }
+    }
+
+    private static final class Frame
+    {
+        private final Map<Key<?>, Object> seeds = Maps.newHashMap();
+        private final Map<Key<?>, Object> values = Maps.newHashMap();
+    }
+
+    private final ThreadLocal<Deque<Frame>> frames = new ThreadLocal<>();
 
     public void enter()
     {
-        checkState(values.get() == null, "A scoping block is already in progress");
-        values.set(Maps.<Key<?>, Object>newHashMap());
+        checkState(frames.get() == null, "A scoping block is already in progress");
+        push(new Frame());
+    }
+
+    /**
+     * Enters a new scoping block pre-seeded with the given seeds. Unlike {@link #enter()} this may be nested inside a
+     * block already in progress on the current thread, in which case scoped objects are not shared with the outer
+     * block.
+     */
+    public void enter(Seeds seeds)
+    {
+        Frame frame = new Frame();
+        frame.seeds.putAll(seeds.values);
+        frame.values.putAll(seeds.values);
+        push(frame);
+    }
+
+    private void push(Frame frame)
+    {
+        Deque<Frame> deque = frames.get();
+        if (deque == null) {
+            deque = new ArrayDeque<>();
+            frames.set(deque);
+        }
+        deque.push(frame);
     }
 
     public void exit()
     {
-        checkState(values.get() != null, "No scoping block in progress");
-        values.remove();
+        Deque<Frame> deque = frames.get();
+        checkState(deque != null, "No scoping block in progress");
+        deque.pop();
+        if (deque.isEmpty()) {
+            frames.remove();
+        }
+    }
+
+    public Seeds captureSeeds()
+    {
+        return new Seeds(getFrame(null).seeds);
+    }
+
+    /**
+     * Returns a provider of a holder of the seeds of the current scoping block, to be bound to SeedsHolder in this
+     * scope.
+     */
+    public Provider<SeedsHolder> seedsHolderProvider()
+    {
+        return () -> new SeedsHolder(captureSeeds());
     }
 
     public <T> void seed(Key<T> key, T value)
     {
-        Map<Key<?>, Object> scopedObjects = getScopedObjectMap(key);
+        Frame frame = getFrame(key);
+        Map<Key<?>, Object> scopedObjects = frame.values;
         checkState(!scopedObjects.containsKey(key), "A value for the key %s was " +
                         "already seeded in this scope. Old value: %s New value: %s", key,
                 scopedObjects.get(key), value);
         scopedObjects.put(key, value);
+        frame.seeds.put(key, value);
     }
 
     public <T> void seed(Class<T> clazz, T value)
@@ -87,7 +246,7 @@ public class SimpleScope
         {
             public T get()
             {
-                Map<Key<?>, Object> scopedObjects = getScopedObjectMap(key);
+                Map<Key<?>, Object> scopedObjects = getFrame(key).values;
 
                 @SuppressWarnings("unchecked")
                 T current = (T) scopedObjects.get(key);
@@ -100,13 +259,13 @@ public class SimpleScope
         };
     }
 
-    private <T> Map<Key<?>, Object> getScopedObjectMap(Key<T> key)
+    private <T> Frame getFrame(Key<T> key)
     {
-        Map<Key<?>, Object> scopedObjects = values.get();
-        if (scopedObjects == null) {
+        Deque<Frame> deque = frames.get();
+        if (deque == null) {
             throw new OutOfScopeException("Cannot access " + key + " outside of a scoping block");
         }
-        return scopedObjects;
+        return deque.peek();
     }
 
     /**
@@ -120,4 +279,14 @@ public class SimpleScope
     {
         return (Provider<T>) SEEDED_KEY_PROVIDER;
     }
+
+    /**
+     * Returns a provider of suppliers of the value seeded for the given key, read through the SeedsHolder of the
+     * scoping block the supplier is provided in so that it follows the holder when the block's graph is reseeded.
+     * Requires SeedsHolder to be bound to {@link #seedsHolderProvider()} in this scope.
+     */
+    public static <T> Provider<Supplier<T>> seededSupplierProvider(Key<T> key)
+    {
+        return new SeededSupplierProvider<>(key);
+    }
 }
@@ -1,6 +1,10 @@
 package com.wrmsr;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.io.Files;
+import com.google.common.util.concurrent.Uninterruptibles;
 import com.google.inject.Guice;
 import com.google.inject.Inject;
 import com.google.inject.Injector;
@@ -8,20 +12,97 @@ import com.google.inject.Key;
 import com.google.inject.PrivateModule;
 import com.google.inject.TypeLiteral;
 import com.google.inject.name.Names;
+import com.google.inject.util.Modules;
 import com.wrmsr.search.dsl.AppModule;
+import com.wrmsr.search.dsl.ComputedScoreQuery;
+import com.wrmsr.search.dsl.Deadline;
+import com.wrmsr.search.dsl.DirectoryType;
+import com.wrmsr.search.dsl.DocScorer;
+import com.wrmsr.search.dsl.SearchConfig;
+import com.wrmsr.search.dsl.SearchRequest;
+import com.wrmsr.search.dsl.SearchScope;
+import com.wrmsr.search.dsl.SearchMetrics;
+import com.wrmsr.search.dsl.SearchPhase;
+import com.wrmsr.search.dsl.SearchScoped;
 import com.wrmsr.search.dsl.SearchService;
+import com.wrmsr.search.dsl.SearchStats;
+import com.wrmsr.search.dsl.SearchTimeoutException;
+import com.wrmsr.search.dsl.lucene.CachingLuceneQueryCompiler;
+import com.wrmsr.search.dsl.lucene.FilterCache;
+import com.wrmsr.search.dsl.lucene.LuceneQueryCompiler;
+import com.wrmsr.search.dsl.lucene.QueryTermRenderer;
 import com.wrmsr.search.dsl.query.node.BooleanQueryNode;
+import com.wrmsr.search.dsl.query.node.BoostedQueryNode;
+import com.wrmsr.search.dsl.query.node.GeoBoundingBoxQueryNode;
+import com.wrmsr.search.dsl.query.node.GeoDistanceQueryNode;
 import com.wrmsr.search.dsl.query.node.MatchQueryNode;
 import com.wrmsr.search.dsl.query.node.QueryNode;
+import com.wrmsr.search.dsl.query.node.RangeQueryNode;
 import com.wrmsr.search.dsl.query.node.TermQueryNode;
+import com.wrmsr.search.dsl.query.term.NumberQueryTerm;
 import com.wrmsr.search.dsl.query.term.StringQueryTerm;
+import com.wrmsr.search.dsl.scoring.DocEpoch;
+import com.wrmsr.search.dsl.scoring.MemoizingSuppliers;
+import com.wrmsr.search.dsl.scoring.ScoreVar;
+import com.wrmsr.search.dsl.scoring.ScoreVarProfiler;
+import com.wrmsr.search.dsl.scoring.ScoreVars;
+import com.wrmsr.search.dsl.scoring.ScoringModule;
+import com.wrmsr.search.dsl.util.DerivedSuppliers;
+import com.wrmsr.search.dsl.util.FloatBlockSupplier;
+import com.wrmsr.search.dsl.util.FloatSupplier;
+import com.wrmsr.search.dsl.util.InvocationCounter;
+import com.wrmsr.search.dsl.util.Point;
 import junit.framework.Test;
 import junit.framework.TestCase;
 import junit.framework.TestSuite;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.FieldType;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.AtomicReaderContext;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.NumericDocValues;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.store.AlreadyClosedException;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.RAMDirectory;
+import org.apache.lucene.util.Version;
 
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.TabularData;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Supplier;
 
+import static com.wrmsr.search.dsl.util.ImmutableCollectors.toImmutableList;
+import static com.wrmsr.search.dsl.util.ImmutableCollectors.toImmutableSet;
+
 public class AppTest
         extends TestCase
 {
@@ -37,19 +118,28 @@ public class AppTest
 
     private final List<List<SearchService.Doc>> docLists = ImmutableList.<List<SearchService.Doc>>builder()
             .add(ImmutableList.<SearchService.Doc>builder()
-                    .add(new SearchService.Doc("Lucene in Action", "193398817"))
-                    .add(new SearchService.Doc("Lucene for Dummies", "55320055Z"))
+                    .add(new SearchService.Doc("Lucene in Action", "193398817", 2004))
+                    .add(new SearchService.Doc("Lucene for Dummies", "55320055Z", 2010))
                     .build())
             .add(ImmutableList.<SearchService.Doc>builder()
-                    .add(new SearchService.Doc("Managing Gigabytes", "55063554A"))
+                    .add(new SearchService.Doc("Managing Gigabytes", "55063554A", 1999))
                     .add(new SearchService.Doc("The Art of Computer Science", "9900333X"))
                     .build())
             .build();
 
-    public void testApp()
+    private QueryNode newQueryNode()
+    {
+        return new BooleanQueryNode(
+                ImmutableList.of(
+                        new BooleanQueryNode.ShouldClause(new MatchQueryNode("title", "lucene")),
+                        new BooleanQueryNode.ShouldClause(new TermQueryNode("isbn", new StringQueryTerm("55063554A")))),
+                1);
+    }
+
+    private SearchService newSearchService(SearchConfig config)
             throws Throwable
     {
-        Injector injector = Guice.createInjector(new AppModule());
+        Injector injector = Guice.createInjector(new AppModule(config));
         SearchService searchService = injector.getInstance(SearchService.class);
 
         for (List<SearchService.Doc> docList : docLists) {
@@ -59,22 +149,70 @@ public class AppTest
         }
 
         searchService.commit();
+        return searchService;
+    }
 
-        QueryNode queryNode = new BooleanQueryNode(
-                ImmutableList.of(
-                        new BooleanQueryNode.ShouldClause(new MatchQueryNode("title", "lucene")),
-                        new BooleanQueryNode.ShouldClause(new TermQueryNode("isbn", new StringQueryTerm("55063554A")))),
-                1);
+    public void testApp()
+            throws Throwable
+    {
+        try (SearchService searchService = newSearchService(new SearchConfig())) {
+            QueryNode queryNode = newQueryNode();
+
+            /*
+            ObjectMapper objectMapper = new ObjectMapper();
+            String json = objectMapper.writerWithDefaultPrettyPrinter().writeValueAsString(root);
+            root = objectMapper.reader().withType(QueryNode.class).readValue(json);
+            */
 
-        /*
-        ObjectMapper objectMapper = new ObjectMapper();
-        String json = objectMapper.writerWithDefaultPrettyPrinter().writeValueAsString(root);
-        root = objectMapper.reader().withType(QueryNode.class).readValue(json);
-        */
+            List<SearchService.Hit> hits = searchService.searchDocs(queryNode, 10);
+            for (SearchService.Hit hit : hits) {
+                System.out.println(hit);
+            }
+        }
+    }
 
-        List<SearchService.Hit> hits = searchService.searchDocs(queryNode, 10);
-        for (SearchService.Hit hit : hits) {
-            System.out.println(hit);
+    public void testParallelSearch()
+            throws Throwable
+    {
+        try (SearchService serialService = newSearchService(new SearchConfig());
+                SearchService parallelService = newSearchService(new SearchConfig().setSearchThreads(4))) {
+            // ten segments, too few to be merged, in two slices; later batches are larger, so grouping segments by size
+            // reverses their order, and every volume scores the same, so the hits kept depend on ties being broken by
+            // docId across segments and slices
+            for (int i = 0; i < 9; ++i) {
+                List<SearchService.Doc> docs = new ArrayList<>();
+                for (int j = 0; j <= i; ++j) {
+                    docs.add(new SearchService.Doc(String.format("Lucene Volume %02d.%02d", i, j), String.format("v%02d%02d", i, j)));
+                }
+                serialService.addDocs(docs);
+                serialService.commit();
+                parallelService.addDocs(docs);
+                parallelService.commit();
+            }
+
+            // a boolean query may be scored out of order, which breaks ties by docId whatever the order of the segments,
+            // while a term query is collected in order
+            for (QueryNode queryNode : ImmutableList.of(newQueryNode(), new MatchQueryNode("title", "lucene"))) {
+                for (int maxHits : new int[] {1, 10, 40}) {
+                    List<SearchService.Hit> serialHits = serialService.searchDocs(queryNode, maxHits);
+                    assertEquals(maxHits, serialHits.size());
+                    assertEquals(serialHits, parallelService.searchDocs(queryNode, maxHits));
+                }
+            }
+        }
+    }
+
+    public void testRefreshWithoutCommit()
+            throws Throwable
+    {
+        try (SearchService searchService = newSearchService(new SearchConfig().setRefreshIntervalMillis(0))) {
+            int hitCount = searchService.searchDocs(newQueryNode(), 10).size();
+
+            searchService.addDoc(new SearchService.Doc("Lucene in Depth", "1000000000"));
+            assertEquals(hitCount, searchService.searchDocs(newQueryNode(), 10).size());
+
+            searchService.refresh();
+            assertEquals(hitCount + 1, searchService.searchDocs(newQueryNode(), 10).size());
         }
     }
 
@@ -117,6 +255,373 @@ public class AppTest
         }
     }
 
+    public void testNumericRange()
+            throws Throwable
+    {
+        try (SearchService searchService = newSearchService(new SearchConfig())) {
+            List<SearchService.Hit> hits = searchService.searchDocs(
+                    new RangeQueryNode("year", new NumberQueryTerm(new BigDecimal("1999.5")), new NumberQueryTerm(new BigDecimal(2010)), true, false), 10);
+            assertEquals(1, hits.size());
+            assertEquals("Lucene in Action", hits.get(0).getDoc().getTitle());
+            assertEquals(Integer.valueOf(2004), hits.get(0).getDoc().getYear());
+
+            hits = searchService.searchDocs(new TermQueryNode("year", new NumberQueryTerm(new BigDecimal(1999))), 10);
+            assertEquals(1, hits.size());
+            assertEquals("Managing Gigabytes", hits.get(0).getDoc().getTitle());
+        }
+    }
+
+    public void testGeo()
+            throws Throwable
+    {
+        try (SearchService searchService = newSearchService(new SearchConfig().setRefreshIntervalMillis(0))) {
+            Point paris = new Point(48.8566f, 2.3522f);
+            searchService.addDoc(new SearchService.Doc("Lucene in Paris", "1", null, paris));
+            searchService.addDoc(new SearchService.Doc("Lucene in London", "2", null, new Point(51.5074f, -0.1278f)));
+            searchService.addDoc(new SearchService.Doc("Lucene in New York", "3", null, new Point(40.7128f, -74.0060f)));
+            searchService.addDoc(new SearchService.Doc("Lucene in Fiji", "4", null, new Point(-17.7134f, 178.0650f)));
+            searchService.addDoc(new SearchService.Doc("Lucene in Samoa", "5", null, new Point(-13.7590f, -172.1046f)));
+            searchService.refresh();
+
+            List<SearchService.Hit> hits = searchService.search(new SearchRequest(new GeoDistanceQueryNode("location", new Point(49.5f, 1.0f), 500_000))
+                    .setScoreVar("proximity")
+                    .setOrigin(paris));
+            assertEquals(ImmutableList.of("Lucene in Paris", "Lucene in London"), hits.stream().map(h -> h.getDoc().getTitle()).collect(toImmutableList()));
+            assertEquals(paris, hits.get(0).getDoc().getLocation());
+            assertEquals(1.0f, hits.get(0).getScore(), 0.0001f);
+
+            // the graphs pooled by the first search are reseeded with the origin of the next
+            Point london = new Point(51.5074f, -0.1278f);
+            hits = searchService.search(new SearchRequest(new GeoDistanceQueryNode("location", new Point(49.5f, 1.0f), 500_000))
+                    .setScoreVar("proximity")
+                    .setOrigin(london));
+            assertEquals(ImmutableList.of("Lucene in London", "Lucene in Paris"), hits.stream().map(h -> h.getDoc().getTitle()).collect(toImmutableList()));
+            assertEquals(1.0f, hits.get(0).getScore(), 0.0001f);
+
+            hits = searchService.searchDocs(new GeoBoundingBoxQueryNode("location", new Point(-10.0f, 170.0f), new Point(-20.0f, -170.0f)), 10);
+            assertEquals(ImmutableSet.of("Lucene in Fiji", "Lucene in Samoa"), hits.stream().map(h -> h.getDoc().getTitle()).collect(toImmutableSet()));
+        }
+    }
+
+    public void testRescoreWindow()
+            throws Throwable
+    {
+        try (SearchService searchService = newSearchService(new SearchConfig())) {
+            List<SearchService.Hit> hits = searchService.searchDocs(newQueryNode(), 10);
+
+            assertEquals(hits, searchService.search(new SearchRequest(newQueryNode()).setRescoreWindow(100)));
+            assertEquals(hits, searchService.search(new SearchRequest(newQueryNode()).setRescoreWindow(100).setWindowScoreVar("float_one")));
+            assertEquals(1, searchService.search(new SearchRequest(newQueryNode()).setRescoreWindow(1)).size());
+        }
+
+        // the window keeps the two docs nearest to paris, which the final score then ranks by title length
+        Injector injector = Guice.createInjector(new AppModule(new SearchConfig().setRefreshIntervalMillis(0)));
+        try (SearchService searchService = injector.getInstance(SearchService.class)) {
+            searchService.addDoc(new SearchService.Doc("Lucene Paris", "1", null, new Point(48.8566f, 2.3522f)));
+            searchService.addDoc(new SearchService.Doc("Lucene in London Town", "1", null, new Point(51.5074f, -0.1278f)));
+            searchService.addDoc(new SearchService.Doc("Lucene in Faraway New York City", "1", null, new Point(40.7128f, -74.0060f)));
+            searchService.addDoc(new SearchService.Doc("Lucene in Fiji", "1", null, new Point(-17.7134f, 178.0650f)));
+            searchService.refresh();
+
+            SearchRequest request = new SearchRequest(new MatchQueryNode("title", "lucene")).setOrigin(new Point(48.8566f, 2.3522f));
+            assertEquals(
+                    ImmutableList.of("Lucene in Faraway New York City", "Lucene in London Town", "Lucene in Fiji", "Lucene Paris"),
+                    searchService.search(request).stream().map(h -> h.getDoc().getTitle()).collect(toImmutableList()));
+            assertEquals(
+                    ImmutableList.of("Lucene in London Town", "Lucene Paris"),
+                    searchService.search(request.setRescoreWindow(2).setWindowScoreVar("proximity")).stream().map(h -> h.getDoc().getTitle()).collect(toImmutableList()));
+        }
+    }
+
+    public void testBoundedScore()
+            throws Throwable
+    {
+        try (SearchService searchService = newSearchService(new SearchConfig())) {
+            List<SearchService.Hit> hits = searchService.search(new SearchRequest(newQueryNode()).setScoreVar("float_one").setMaxHits(2));
+            assertEquals(2, hits.size());
+            // every doc reaches the bound, so collection stops at the first maxHits matches in docId order
+            assertTrue(hits.get(0).getDocId() < hits.get(1).getDocId());
+            assertEquals(1.0f, hits.get(1).getScore());
+        }
+    }
+
+    public void testPooledDocScorers()
+            throws Throwable
+    {
+        try (SearchService unpooledService = newSearchService(new SearchConfig().setDocScorerPoolSize(0));
+                SearchService searchService = newSearchService(new SearchConfig().setSearchThreads(4))) {
+            List<SearchService.Hit> hits = unpooledService.searchDocs(newQueryNode(), 10);
+            for (int i = 0; i < 3; ++i) {
+                assertEquals(hits, searchService.searchDocs(newQueryNode(), 10));
+            }
+        }
+    }
+
+    private static final class RankScorer
+            implements DocScorer
+    {
+        private NumericDocValues ranks;
+        private int docId;
+
+        @Override
+        public void setAtomicReaderContext(AtomicReaderContext atomicReaderContext)
+                throws IOException
+        {
+            ranks = atomicReaderContext.reader().getNumericDocValues("rank");
+        }
+
+        @Override
+        public void setDocId(int docId)
+        {
+            this.docId = docId;
+        }
+
+        @Override
+        public float score()
+        {
+            return ranks.get(docId);
+        }
+    }
+
+    public void testConcurrentComputedScoreQuery()
+            throws Throwable
+    {
+        int segments = 8;
+        int docsPerSegment = 500;
+        Directory directory = new RAMDirectory();
+        try (IndexWriter indexWriter = new IndexWriter(directory, new IndexWriterConfig(Version.LUCENE_4_9, new StandardAnalyzer(Version.LUCENE_4_9)))) {
+            for (int i = 0; i < segments; ++i) {
+                for (int j = 0; j < docsPerSegment; ++j) {
+                    Document document = new Document();
+                    document.add(new NumericDocValuesField("rank", (j * 7919 + i) % 1000));
+                    indexWriter.addDocument(document);
+                }
+                indexWriter.commit();
+            }
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try (DirectoryReader reader = DirectoryReader.open(directory)) {
+            assertEquals(segments, reader.leaves().size());
+            AtomicInteger docScorers = new AtomicInteger();
+            ComputedScoreQuery query = new ComputedScoreQuery(() -> {
+                docScorers.incrementAndGet();
+                return new RankScorer();
+            }, new MatchAllDocsQuery());
+
+            TopDocs serial = new IndexSearcher(reader).search(query, 100);
+            IndexSearcher parallelSearcher = new IndexSearcher(reader, executor);
+            for (int i = 0; i < 10; ++i) {
+                TopDocs parallel = parallelSearcher.search(query, 100);
+                assertEquals(serial.totalHits, parallel.totalHits);
+                for (int j = 0; j < serial.scoreDocs.length; ++j) {
+                    assertEquals(serial.scoreDocs[j].doc, parallel.scoreDocs[j].doc);
+                    assertEquals(serial.scoreDocs[j].score, parallel.scoreDocs[j].score);
+                }
+            }
+            // every segment of every search got its own DocScorer
+            assertEquals(11 * segments, docScorers.get());
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    public void testQueryCache()
+            throws Throwable
+    {
+        CachingLuceneQueryCompiler compiler = new CachingLuceneQueryCompiler(new StandardAnalyzer(Version.LUCENE_4_9), new QueryTermRenderer(), 100);
+        assertEquals(newQueryNode(), newQueryNode());
+        assertEquals(newQueryNode().hashCode(), newQueryNode().hashCode());
+
+        Query query = compiler.compileQuery(newQueryNode());
+        assertSame(query, compiler.compileQuery(newQueryNode()));
+        assertEquals(1, compiler.getQueryCacheStats().hitCount());
+        assertEquals(1, compiler.getQueryCacheStats().missCount());
+
+        compiler.compileQuery(new BoostedQueryNode(new MatchQueryNode("title", "lucene"), 2.0f));
+        assertEquals(1, compiler.getTokenCacheStats().hitCount());
+    }
+
+    public void testResultCache()
+            throws Throwable
+    {
+        Injector injector = Guice.createInjector(new AppModule(new SearchConfig().setRefreshIntervalMillis(0).setResultCacheWeight(1000).setMetricsEnabled(true)));
+        try (SearchService searchService = injector.getInstance(SearchService.class)) {
+            for (List<SearchService.Doc> docList : docLists) {
+                searchService.addDocs(docList);
+            }
+            searchService.commit();
+            List<SearchService.Hit> hits = searchService.searchDocs(newQueryNode(), 10);
+            assertSame(hits, searchService.searchDocs(newQueryNode(), 10));
+            assertNotSame(hits, searchService.searchDocs(newQueryNode(), 5));
+            assertNotSame(hits, searchService.search(new SearchRequest(newQueryNode()).setScoreVar("float_one")));
+
+            searchService.addDoc(new SearchService.Doc("More Lucene", "12345"));
+            assertSame(hits, searchService.searchDocs(newQueryNode(), 10));
+            searchService.refresh();
+            assertEquals(hits.size() + 1, searchService.searchDocs(newQueryNode(), 10).size());
+
+            ObjectName objectName = ((SearchStats) injector.getInstance(SearchMetrics.class)).getObjectName().get();
+            assertEquals(2L, ManagementFactory.getPlatformMBeanServer().getAttribute(objectName, "ResultCacheHits"));
+            assertEquals(4L, ManagementFactory.getPlatformMBeanServer().getAttribute(objectName, "ResultCacheMisses"));
+            assertEquals(2L, ManagementFactory.getPlatformMBeanServer().getAttribute(objectName, "CachedSearches"));
+            assertEquals(4L, ManagementFactory.getPlatformMBeanServer().getAttribute(objectName, "Searches"));
+        }
+    }
+
+    public void testFilterCache()
+            throws Throwable
+    {
+        QueryNode queryNode = new BooleanQueryNode(
+                ImmutableList.of(
+                        new BooleanQueryNode.ShouldClause(new MatchQueryNode("title", "lucene")),
+                        new BooleanQueryNode.MustNotClause(new MatchQueryNode("isbn", "55320055Z"))),
+                1);
+        try (SearchService uncachedService = newSearchService(new SearchConfig().setFilterCacheBytes(0));
+                SearchService searchService = newSearchService(new SearchConfig())) {
+            List<SearchService.Hit> hits = uncachedService.searchDocs(queryNode, 10);
+            assertEquals(ImmutableList.of("Lucene in Action"), hits.stream().map(h -> h.getDoc().getTitle()).collect(toImmutableList()));
+            assertEquals(hits, searchService.searchDocs(queryNode, 10));
+        }
+
+        Analyzer analyzer = new StandardAnalyzer(Version.LUCENE_4_9);
+        FilterCache filterCache = new FilterCache(1 << 20);
+        LuceneQueryCompiler compiler = new LuceneQueryCompiler(analyzer, new QueryTermRenderer(), ImmutableMap.of(), Optional.of(filterCache));
+        Directory directory = new RAMDirectory();
+        try (IndexWriter indexWriter = new IndexWriter(directory, new IndexWriterConfig(Version.LUCENE_4_9, analyzer))) {
+            for (List<SearchService.Doc> docList : docLists) {
+                for (SearchService.Doc doc : docList) {
+                    Document document = new Document();
+                    document.add(new TextField("title", doc.getTitle(), Field.Store.NO));
+                    document.add(new TextField("isbn", doc.getIsbn(), Field.Store.NO));
+                    indexWriter.addDocument(document);
+                }
+            }
+        }
+        try (DirectoryReader reader = DirectoryReader.open(directory)) {
+            IndexSearcher indexSearcher = new IndexSearcher(reader);
+            assertEquals(1, indexSearcher.search(compiler.compileQuery(queryNode), 10).totalHits);
+            assertEquals(1, indexSearcher.search(compiler.compileQuery(queryNode), 10).totalHits);
+            assertEquals(1, filterCache.getStats().missCount());
+            assertEquals(1, filterCache.getStats().hitCount());
+            assertEquals(1, filterCache.size());
+        }
+        assertEquals(0, filterCache.size());
+    }
+
+    public void testSearchStats()
+            throws Throwable
+    {
+        Injector injector = Guice.createInjector(new AppModule(new SearchConfig().setMetricsEnabled(true)));
+        try (SearchService searchService = injector.getInstance(SearchService.class)) {
+            for (List<SearchService.Doc> docList : docLists) {
+                searchService.addDocs(docList);
+            }
+            searchService.commit();
+            List<SearchService.Hit> hits = searchService.searchDocs(newQueryNode(), 10);
+            searchService.searchDocs(newQueryNode(), 1);
+
+            SearchStats searchStats = (SearchStats) injector.getInstance(SearchMetrics.class);
+            assertEquals(2, searchStats.getSearches());
+            assertEquals(hits.size(), searchStats.getHits().getMax());
+            assertEquals(2, searchStats.getPhase(SearchPhase.SCORING).getCount());
+            assertTrue(searchStats.getTotal().getMax() >= searchStats.getScoring().getMax());
+
+            ObjectName objectName = searchStats.getObjectName().get();
+            CompositeData total = (CompositeData) ManagementFactory.getPlatformMBeanServer().getAttribute(objectName, "Total");
+            assertEquals(2L, total.get("count"));
+            assertEquals(1L, ManagementFactory.getPlatformMBeanServer().getAttribute(objectName, "QueryCacheMisses"));
+            assertEquals(1L, ManagementFactory.getPlatformMBeanServer().getAttribute(objectName, "QueryCacheHits"));
+            assertTrue(searchStats.getTokenCacheMisses() > 0);
+
+            QueryNode filteredQueryNode = new BooleanQueryNode(
+                    ImmutableList.of(
+                            new BooleanQueryNode.ShouldClause(new MatchQueryNode("title", "lucene")),
+                            new BooleanQueryNode.MustNotClause(new MatchQueryNode("isbn", "55320055Z"))),
+                    1);
+            searchService.searchDocs(filteredQueryNode, 10);
+            long filterCacheMisses = searchStats.getFilterCacheMisses();
+            assertTrue(filterCacheMisses > 0);
+            searchService.searchDocs(filteredQueryNode, 10);
+            assertEquals(filterCacheMisses, ManagementFactory.getPlatformMBeanServer().getAttribute(objectName, "FilterCacheMisses"));
+            assertEquals(filterCacheMisses, ManagementFactory.getPlatformMBeanServer().getAttribute(objectName, "FilterCacheHits"));
+
+            searchService.close();
+            assertFalse(ManagementFactory.getPlatformMBeanServer().isRegistered(objectName));
+        }
+    }
+
+    public void testSelectiveHydration()
+            throws Throwable
+    {
+        try (SearchService searchService = newSearchService(new SearchConfig())) {
+            List<SearchService.Hit> hits = searchService.searchDocs(newQueryNode(), 10);
+            List<SearchService.Hit> titleHits = searchService.searchDocs(newQueryNode(), 10, ImmutableSet.of("title"));
+            List<SearchService.Hit> bareHits = searchService.searchDocs(newQueryNode(), 10, ImmutableSet.of());
+
+            assertEquals(hits.size(), titleHits.size());
+            assertEquals(hits.size(), bareHits.size());
+            for (int i = 0; i < hits.size(); ++i) {
+                SearchService.Hit hit = hits.get(i);
+                assertEquals(new SearchService.Hit(hit.getDocId(), new SearchService.Doc(hit.getDoc().getTitle(), null, null), hit.getScore()), titleHits.get(i));
+                assertEquals(new SearchService.Hit(hit.getDocId(), null, hit.getScore()), bareHits.get(i));
+            }
+        }
+    }
+
+    public void testAddDocs()
+            throws Throwable
+    {
+        try (SearchService searchService = newSearchService(new SearchConfig().setIndexThreads(4).setRefreshIntervalMillis(0))) {
+            int hitCount = searchService.searchDocs(newQueryNode(), 100).size();
+
+            List<SearchService.Doc> docs = new ArrayList<>();
+            for (int i = 0; i < 1000; ++i) {
+                docs.add(new SearchService.Doc("Lucene Volume " + i, Integer.toString(i)));
+            }
+            SearchService.AddDocsResult result = searchService.addDocs(docs);
+            assertEquals(docs.size(), result.getDocCount());
+
+            searchService.refresh();
+            assertEquals(hitCount + docs.size(), searchService.searchDocs(newQueryNode(), 2000).size());
+        }
+    }
+
+    public void testReopenOnDiskIndex()
+            throws Throwable
+    {
+        File indexPath = Files.createTempDir();
+        try {
+            SearchConfig config = new SearchConfig()
+                    .setDirectoryType(DirectoryType.MMAP)
+                    .setIndexPath(indexPath)
+                    .setRefreshIntervalMillis(0);
+            List<SearchService.Hit> hits;
+            try (SearchService searchService = newSearchService(config)) {
+                hits = searchService.searchDocs(newQueryNode(), 10);
+            }
+
+            try (SearchService searchService = Guice.createInjector(new AppModule(config)).getInstance(SearchService.class)) {
+                assertEquals(hits, searchService.searchDocs(newQueryNode(), 10));
+            }
+        }
+        finally {
+            deleteRecursively(indexPath);
+        }
+    }
+
+    private static void deleteRecursively(File file)
+    {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        file.delete();
+    }
+
     public void testThing()
             throws Throwable
     {
@@ -124,4 +629,462 @@ public class AppTest
         System.out.println(injector.getInstance(Key.get(new TypeLiteral<Supplier<Integer>>() {}, Names.named("a"))).get());
         System.out.println(injector.getInstance(Key.get(new TypeLiteral<Supplier<Integer>>() {}, Names.named("b"))).get());
     }
+
+    public void testPrimitiveScoreVarBindings()
+            throws Throwable
+    {
+        Injector injector = Guice.createInjector(new AppModule());
+        SearchScope searchScope = injector.getInstance(SearchScope.class);
+
+        searchScope.enter();
+        try {
+            FloatSupplier floatOne = injector.getInstance(Key.get(FloatSupplier.class, ScoreVars.scoreVar("float_one")));
+            Supplier<Float> boxedFloatOne = injector.getInstance(Key.get(new TypeLiteral<Supplier<Float>>() {}, ScoreVars.scoreVar("float_one")));
+            assertSame(floatOne, boxedFloatOne);
+            assertEquals(1.0f, floatOne.getAsFloat());
+            assertEquals(Float.valueOf(1.0f), boxedFloatOne.get());
+        }
+        finally {
+            searchScope.exit();
+        }
+    }
+
+    public static final class FusedComputations
+    {
+        private FusedComputations()
+        {
+        }
+
+        @ScoreVar("two")
+        public static float computeTwo()
+        {
+            return 2.0f;
+        }
+
+        @ScoreVar("scaled")
+        public static float computeScaled(@ScoreVar("two") float two, @ScoreVar("input") float input)
+        {
+            return two * input;
+        }
+
+        @ScoreVar("total")
+        public static float computeTotal(@ScoreVar("two") float two, @ScoreVar("scaled") float scaled, @ScoreVar("input") float input)
+        {
+            return two + scaled + input;
+        }
+    }
+
+    public void testFusedSupplier()
+            throws Throwable
+    {
+        Map<ScoreVar, Method> computations = ScoringModule.getComputations(FusedComputations.class);
+        Method root = computations.get(ScoreVars.scoreVar("total"));
+        Class<?> clazz = DerivedSuppliers.compileFused(root, computations, getClass().getClassLoader());
+
+        Constructor<?> constructor = clazz.getConstructors()[0];
+        assertEquals(1, constructor.getParameterCount());
+        assertEquals(FloatSupplier.class, constructor.getParameterTypes()[0]);
+
+        FloatSupplier input = () -> 3.0f;
+        FloatSupplier total = (FloatSupplier) constructor.newInstance(input);
+        assertEquals(11.0f, total.getAsFloat());
+    }
+
+    public void testBlockSupplier()
+            throws Throwable
+    {
+        Map<ScoreVar, Method> computations = ScoringModule.getComputations(FusedComputations.class);
+        Class<?> clazz = DerivedSuppliers.compileFused(computations.get(ScoreVars.scoreVar("total")), computations, getClass().getClassLoader());
+
+        int[] currentDocId = {-1};
+        FloatSupplier input = () -> (float) currentDocId[0];
+        FloatBlockSupplier total = (FloatBlockSupplier) clazz.getConstructors()[0].newInstance(input);
+
+        int[] docIds = {1, 4, 9};
+        float[] values = new float[docIds.length];
+        total.getAsFloats(docId -> currentDocId[0] = docId, docIds, docIds.length, values);
+        for (int i = 0; i < docIds.length; ++i) {
+            currentDocId[0] = docIds[i];
+            assertEquals(total.getAsFloat(), values[i]);
+        }
+    }
+
+    public void testInvocationCounter()
+            throws Throwable
+    {
+        Map<ScoreVar, Method> computations = ScoringModule.getComputations(FusedComputations.class);
+        InvocationCounter counter = new InvocationCounter(1);
+        Class<?> clazz = DerivedSuppliers.compileFused(computations.get(ScoreVars.scoreVar("total")), computations, Optional.of(counter), getClass().getClassLoader());
+
+        int[] currentDocId = {-1};
+        FloatSupplier input = () -> (float) currentDocId[0];
+        FloatBlockSupplier total = (FloatBlockSupplier) clazz.getConstructors()[0].newInstance(input);
+
+        int[] docIds = {1, 4, 9};
+        float[] values = new float[docIds.length];
+        total.getAsFloats(docId -> currentDocId[0] = docId, docIds, docIds.length, values);
+        for (int i = 0; i < docIds.length; ++i) {
+            currentDocId[0] = docIds[i];
+            assertEquals(values[i], total.getAsFloat());
+        }
+
+        InvocationCounter.Snapshot snapshot = counter.getSnapshot();
+        assertEquals(2 * docIds.length, snapshot.getInvocations());
+        assertEquals(snapshot.getInvocations(), snapshot.getSampledInvocations());
+    }
+
+    public void testScoreVarProfile()
+            throws Throwable
+    {
+        Injector injector = Guice.createInjector(new AppModule(new SearchConfig().setScoreVarProfileSampleRate(4).setMetricsEnabled(true)));
+        try (SearchService searchService = injector.getInstance(SearchService.class)) {
+            for (List<SearchService.Doc> docList : docLists) {
+                searchService.addDocs(docList);
+            }
+            searchService.commit();
+
+            ScoreVarProfiler profiler = injector.getInstance(ScoreVarProfiler.class);
+            Map<String, InvocationCounter.Snapshot> before = profiler.getProfile();
+            List<SearchService.Hit> hits = searchService.searchDocs(newQueryNode(), 10);
+            Map<String, InvocationCounter.Snapshot> profile = profiler.getProfileSince(before);
+
+            assertFalse(hits.isEmpty());
+            assertTrue(profile.values().stream().anyMatch(s -> s.getInvocations() >= hits.size()));
+            assertTrue(profile.values().stream().allMatch(s -> s.getSampledInvocations() <= s.getInvocations()));
+
+            ObjectName objectName = ((SearchStats) injector.getInstance(SearchMetrics.class)).getObjectName().get();
+            TabularData exported = (TabularData) ManagementFactory.getPlatformMBeanServer().getAttribute(objectName, "ScoreVarProfile");
+            assertEquals(profile.size(), exported.size());
+        }
+    }
+
+    public void testScroll()
+            throws Throwable
+    {
+        try (SearchService searchService = newSearchService(new SearchConfig())) {
+            List<SearchService.Doc> docs = new ArrayList<>();
+            for (int i = 0; i < 25; ++i) {
+                docs.add(new SearchService.Doc("Lucene Volume " + i, Integer.toString(i)));
+            }
+            searchService.addDocs(docs);
+            searchService.commit();
+            List<SearchService.Hit> hits = searchService.searchDocs(newQueryNode(), 100);
+            assertTrue(hits.size() > docs.size());
+
+            List<SearchService.Hit> scrolled = new ArrayList<>();
+            searchService.scroll(new SearchRequest(newQueryNode()).setMaxHits(4)).forEachRemaining(scrolled::add);
+            assertEquals(hits, scrolled);
+
+            List<SearchService.Hit> page = searchService.search(new SearchRequest(newQueryNode()).setMaxHits(3).setSearchAfter(hits.get(9).toCursor()));
+            assertEquals(hits.subList(10, 13), page);
+
+            // commits between pages neither skip nor repeat hits of a scroll already under way
+            scrolled.clear();
+            try (SearchService.Scroll scroll = searchService.scroll(new SearchRequest(newQueryNode()).setMaxHits(4))) {
+                while (scroll.hasNext()) {
+                    scrolled.add(scroll.next());
+                    if (scrolled.size() % 4 == 0) {
+                        searchService.addDocs(ImmutableList.of(new SearchService.Doc("Lucene Addendum " + scrolled.size(), "n")));
+                        searchService.commit();
+                    }
+                }
+            }
+            assertEquals(hits, scrolled);
+            assertTrue(searchService.searchDocs(newQueryNode(), 100).size() > hits.size());
+        }
+    }
+
+    public void testAsyncSearch()
+            throws Throwable
+    {
+        Injector injector = Guice.createInjector(new AppModule(new SearchConfig().setMetricsEnabled(true).setIndexRequestQueueSize(1)));
+        try (SearchService searchService = injector.getInstance(SearchService.class)) {
+            for (List<SearchService.Doc> docList : docLists) {
+                searchService.addDocs(docList);
+            }
+            searchService.commitAsync().get();
+
+            List<SearchService.Hit> hits = searchService.searchDocs(newQueryNode(), 10);
+            assertEquals(hits, searchService.searchAsync(new SearchRequest(newQueryNode()).setTimeoutMillis(60_000)).get());
+
+            // holds the index request thread so that one more request fills its queue and the next is rejected
+            CountDownLatch started = new CountDownLatch(1);
+            CountDownLatch latch = new CountDownLatch(1);
+            CompletableFuture<SearchService.AddDocsResult> blocked = searchService.addDocsAsync(() -> {
+                started.countDown();
+                Uninterruptibles.awaitUninterruptibly(latch);
+                return ImmutableList.<SearchService.Doc>of().iterator();
+            });
+            started.await();
+            CompletableFuture<Void> queued = searchService.commitAsync();
+            CompletableFuture<Void> rejected = searchService.commitAsync();
+            assertTrue(rejected.isCompletedExceptionally());
+            try {
+                rejected.get();
+                fail();
+            }
+            catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof RejectedExecutionException);
+            }
+            latch.countDown();
+            blocked.get();
+            queued.get();
+
+            SearchStats searchStats = (SearchStats) injector.getInstance(SearchMetrics.class);
+            assertEquals(1, searchStats.getRejections());
+        }
+    }
+
+    public void testDeadline()
+            throws Throwable
+    {
+        Deadline.NONE.check();
+        Deadline deadline = Deadline.afterMillis(1);
+        Thread.sleep(10);
+        assertTrue(deadline.isExpired());
+        try {
+            deadline.check();
+            fail();
+        }
+        catch (SearchTimeoutException e) {
+            // expected
+        }
+    }
+
+    public static final class CountingScore
+            implements Supplier<Float>, FloatSupplier
+    {
+        private static final AtomicInteger INSTANCES = new AtomicInteger();
+
+        @Inject
+        public CountingScore()
+        {
+            INSTANCES.incrementAndGet();
+        }
+
+        @Override
+        public float getAsFloat()
+        {
+            return 1.0f;
+        }
+
+        @Override
+        public Float get()
+        {
+            return getAsFloat();
+        }
+    }
+
+    public void testTimedSearchesReuseDocScorers()
+            throws Throwable
+    {
+        Injector injector = Guice.createInjector(
+                new AppModule(new SearchConfig()),
+                binder -> ScoreVars.bindScoreVarSupplier(binder, "counting", float.class, CountingScore.class, SearchScoped.class));
+        try (SearchService searchService = injector.getInstance(SearchService.class)) {
+            for (List<SearchService.Doc> docList : docLists) {
+                searchService.addDocs(docList);
+            }
+            searchService.commit();
+
+            SearchRequest request = new SearchRequest(newQueryNode()).setScoreVar("counting").setTimeoutMillis(60000);
+            assertFalse(searchService.search(request).isEmpty());
+            int instances = CountingScore.INSTANCES.get();
+            assertTrue(instances > 0);
+            // each request has its own deadline, which must not keep it from the graphs of earlier requests
+            searchService.search(new SearchRequest(request).setMaxHits(5));
+            assertEquals(instances, CountingScore.INSTANCES.get());
+
+            // nor must its origin, which pooled graphs are reseeded with
+            searchService.search(new SearchRequest(request).setOrigin(new Point(48.8566f, 2.3522f)));
+            instances = CountingScore.INSTANCES.get();
+            searchService.search(new SearchRequest(request).setOrigin(new Point(51.5074f, -0.1278f)));
+            assertEquals(instances, CountingScore.INSTANCES.get());
+        }
+    }
+
+    public static final class SlowScore
+            implements Supplier<Float>, FloatSupplier
+    {
+        @Override
+        public float getAsFloat()
+        {
+            Uninterruptibles.sleepUninterruptibly(30, TimeUnit.MILLISECONDS);
+            return 1.0f;
+        }
+
+        @Override
+        public Float get()
+        {
+            return getAsFloat();
+        }
+    }
+
+    public void testSearchTimeout()
+            throws Throwable
+    {
+        Injector injector = Guice.createInjector(
+                new AppModule(new SearchConfig().setMetricsEnabled(true)),
+                binder -> ScoreVars.bindScoreVarSupplier(binder, "slow", float.class, SlowScore.class, SearchScoped.class));
+        try (SearchService searchService = injector.getInstance(SearchService.class)) {
+            // rescoring a segment's window runs when the collector moves on to the next one, so a deadline passed while
+            // rescoring the first is caught as the third starts
+            for (int i = 0; i < 4; ++i) {
+                searchService.addDocs(ImmutableList.of(
+                        new SearchService.Doc("Lucene Volume " + i, "a" + i),
+                        new SearchService.Doc("Lucene Appendix " + i, "b" + i)));
+                searchService.commit();
+            }
+            SearchRequest request = new SearchRequest(newQueryNode()).setScoreVar("slow").setRescoreWindow(10);
+            assertEquals(8, searchService.search(request).size());
+
+            SearchStats searchStats = (SearchStats) injector.getInstance(SearchMetrics.class);
+            assertEquals(0, searchStats.getTimeouts());
+            try {
+                searchService.search(new SearchRequest(request).setTimeoutMillis(50));
+                fail();
+            }
+            catch (SearchTimeoutException e) {
+                // expected
+            }
+            assertEquals(1, searchStats.getTimeouts());
+        }
+    }
+
+    public static final class StartedScore
+            implements Supplier<Float>, FloatSupplier
+    {
+        private static final CountDownLatch STARTED = new CountDownLatch(1);
+
+        @Override
+        public float getAsFloat()
+        {
+            STARTED.countDown();
+            Uninterruptibles.sleepUninterruptibly(30, TimeUnit.MILLISECONDS);
+            return 1.0f;
+        }
+
+        @Override
+        public Float get()
+        {
+            return getAsFloat();
+        }
+    }
+
+    public void testClose()
+            throws Throwable
+    {
+        Injector injector = Guice.createInjector(
+                new AppModule(new SearchConfig().setRequestThreads(1)),
+                binder -> ScoreVars.bindScoreVarSupplier(binder, "started", float.class, StartedScore.class, SearchScoped.class));
+        try (SearchService searchService = injector.getInstance(SearchService.class)) {
+            for (List<SearchService.Doc> docList : docLists) {
+                searchService.addDocs(docList);
+            }
+            searchService.commit();
+            List<SearchService.Hit> hits = searchService.searchDocs(newQueryNode(), 100);
+
+            SearchService.Scroll scroll = searchService.scroll(new SearchRequest(newQueryNode()).setMaxHits(1));
+            CompletableFuture<List<SearchService.Hit>> running = searchService.searchAsync(new SearchRequest(newQueryNode()).setScoreVar("started"));
+            CompletableFuture<List<SearchService.Hit>> queued = searchService.searchAsync(new SearchRequest(newQueryNode()));
+            StartedScore.STARTED.await();
+            searchService.close();
+
+            // close waits for the running search, while the one still queued never runs
+            assertTrue(running.isDone());
+            assertEquals(hits.size(), running.get().size());
+            try {
+                queued.get();
+                fail();
+            }
+            catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof AlreadyClosedException);
+            }
+            try {
+                searchService.searchDocs(newQueryNode(), 10);
+                fail();
+            }
+            catch (AlreadyClosedException e) {
+                // expected
+            }
+
+            // the scroll holds the index open past close, and releasing it at its end closes the directory
+            Directory directory = injector.getInstance(Directory.class);
+            directory.listAll();
+            List<SearchService.Hit> scrolled = new ArrayList<>();
+            scroll.forEachRemaining(scrolled::add);
+            assertEquals(hits, scrolled);
+            try {
+                directory.listAll();
+                fail();
+            }
+            catch (AlreadyClosedException e) {
+                // expected
+            }
+        }
+    }
+
+    public void testSearchDuringCommits()
+            throws Throwable
+    {
+        try (SearchService searchService = newSearchService(new SearchConfig().setRefreshIntervalMillis(0).setRequestThreads(4))) {
+            int hitCount = searchService.searchDocs(newQueryNode(), 1000).size();
+
+            List<CompletableFuture<List<SearchService.Hit>>> futures = new ArrayList<>();
+            for (int i = 0; i < 20; ++i) {
+                searchService.addDoc(new SearchService.Doc("Lucene Volume " + i, Integer.toString(i)));
+                futures.add(searchService.searchAsync(new SearchRequest(newQueryNode()).setMaxHits(1000)));
+                searchService.commit();
+            }
+            for (int i = 0; i < futures.size(); ++i) {
+                int count = futures.get(i).get().size();
+                assertTrue(count >= hitCount + i && count <= hitCount + 20);
+            }
+            assertEquals(hitCount + 20, searchService.searchDocs(newQueryNode(), 1000).size());
+        }
+    }
+
+    public void testNumericFieldSchema()
+            throws Throwable
+    {
+        for (Map<String, FieldType.NumericType> numericFields : ImmutableList.<Map<String, FieldType.NumericType>>of(ImmutableMap.of(), ImmutableMap.of("year", FieldType.NumericType.LONG))) {
+            Injector injector = Guice.createInjector(Modules.override(new AppModule()).with(binder -> binder.bind(new TypeLiteral<Map<String, FieldType.NumericType>>() {}).toInstance(numericFields)));
+            try (SearchService searchService = injector.getInstance(SearchService.class)) {
+                for (List<SearchService.Doc> docList : docLists) {
+                    searchService.addDocs(docList);
+                }
+                searchService.commit();
+
+                List<SearchService.Hit> hits = searchService.searchDocs(new TermQueryNode("isbn", new StringQueryTerm("193398817")), 10, ImmutableSet.of("title", "year"));
+                assertEquals(1, hits.size());
+                Integer year = numericFields.containsKey("year") ? 2004 : null;
+                assertEquals(new SearchService.Doc("Lucene in Action", null, year), hits.get(0).getDoc());
+            }
+        }
+    }
+
+    public void testBlockScoring()
+            throws Throwable
+    {
+        try (SearchService unblockedService = newSearchService(new SearchConfig().setScoreBlockSize(0));
+                SearchService searchService = newSearchService(new SearchConfig().setScoreBlockSize(2))) {
+            assertEquals(unblockedService.searchDocs(newQueryNode(), 10), searchService.searchDocs(newQueryNode(), 10));
+        }
+    }
+
+    public void testMemoizedSupplier()
+            throws Throwable
+    {
+        DocEpoch docEpoch = new DocEpoch();
+        int[] calls = {0};
+        FloatSupplier supplier = () -> (float) ++calls[0];
+        FloatSupplier memoized = (FloatSupplier) MemoizingSuppliers.memoize(docEpoch, float.class, supplier);
+
+        docEpoch.setDocId(0);
+        assertEquals(1.0f, memoized.getAsFloat());
+        assertEquals(1.0f, memoized.getAsFloat());
+        docEpoch.setDocId(1);
+        assertEquals(2.0f, memoized.getAsFloat());
+        assertEquals(2, calls[0]);
+    }
 }
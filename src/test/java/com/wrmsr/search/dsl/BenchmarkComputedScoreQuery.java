@@ -0,0 +1,180 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wrmsr.search.dsl;
+
+import com.google.inject.Guice;
+import com.google.inject.Inject;
+import com.google.inject.Injector;
+import com.google.inject.Key;
+import com.google.inject.TypeLiteral;
+import com.wrmsr.search.dsl.field.FieldModule;
+import com.wrmsr.search.dsl.field.StringFieldSource;
+import com.wrmsr.search.dsl.scoring.ScoreVar;
+import com.wrmsr.search.dsl.scoring.ScoreVars;
+import com.wrmsr.search.dsl.util.FloatSupplier;
+import com.wrmsr.search.dsl.util.ScopeListeners;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.FieldType;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.RAMDirectory;
+import org.apache.lucene.util.Version;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static java.util.Objects.requireNonNull;
+
+@State(Scope.Thread)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+public class BenchmarkComputedScoreQuery
+{
+    /**
+     * Hand-written equivalent of the derived static_weird_score supplier.
+     */
+    public static class HandWrittenWeirdScore
+            implements Supplier<Float>, FloatSupplier
+    {
+        private final Supplier<String> isbn;
+        private final FloatSupplier weirdScore;
+
+        @Inject
+        public HandWrittenWeirdScore(
+                @ScoreVar("isbn") Supplier<String> isbn,
+                @ScoreVar("weird_score") FloatSupplier weirdScore)
+        {
+            this.isbn = requireNonNull(isbn);
+            this.weirdScore = requireNonNull(weirdScore);
+        }
+
+        @Override
+        public float getAsFloat()
+        {
+            return (float) isbn.get().length() + 1.0f + weirdScore.getAsFloat();
+        }
+
+        @Override
+        public Float get()
+        {
+            return getAsFloat();
+        }
+    }
+
+    @Param({"100000"})
+    private int docCount;
+
+    @Param({"static_weird_score", "hand_written_weird_score"})
+    private String scoreVar;
+
+    private Injector injector;
+    private SearchScope searchScope;
+    private ScopeListeners<SearchScope> searchScopeListeners;
+    private Directory directory;
+    private IndexSearcher indexSearcher;
+    private Key<FloatSupplier> scoreSupplierKey;
+    private Query query;
+
+    @Setup
+    public void setup()
+            throws IOException
+    {
+        injector = Guice.createInjector(
+                new AppModule(),
+                binder -> ScoreVars.bindScoreVarSupplier(binder, "hand_written_weird_score", float.class, HandWrittenWeirdScore.class, SearchScoped.class));
+        searchScope = injector.getInstance(SearchScope.class);
+        searchScopeListeners = injector.getInstance(new Key<ScopeListeners<SearchScope>>() {});
+
+        directory = new RAMDirectory();
+        IndexWriterConfig indexWriterConfig = new IndexWriterConfig(Version.LUCENE_4_9, new StandardAnalyzer(Version.LUCENE_4_9));
+        try (IndexWriter indexWriter = new IndexWriter(directory, indexWriterConfig)) {
+            DocumentBuilder documentBuilder = new DocumentBuilder(
+                    injector.getInstance(Key.get(new TypeLiteral<Map<String, StringFieldSource>>() {})),
+                    injector.getInstance(Key.get(new TypeLiteral<Map<String, FieldType.NumericType>>() {})),
+                    injector.getInstance(FieldModule.POINT_FIELDS_KEY));
+            for (SearchService.Doc doc : BenchmarkCorpus.generateDocs(docCount, 0)) {
+                indexWriter.addDocument(documentBuilder.build(doc));
+            }
+        }
+        indexSearcher = new IndexSearcher(DirectoryReader.open(directory));
+
+        scoreSupplierKey = Key.get(FloatSupplier.class, ScoreVars.scoreVar(scoreVar));
+        // every doc matches so the benchmark is dominated by computing scores
+        query = new MatchAllDocsQuery();
+    }
+
+    @TearDown
+    public void tearDown()
+            throws IOException
+    {
+        indexSearcher.getIndexReader().close();
+        directory.close();
+    }
+
+    @Benchmark
+    public TopDocs search()
+            throws IOException
+    {
+        searchScope.enter();
+        try {
+            searchScope.seed(IndexSearcher.class, indexSearcher);
+            searchScopeListeners.enter();
+            try {
+                return injector.getInstance(Searcher.class).search(query, scoreSupplierKey, 10, Deadline.NONE);
+            }
+            finally {
+                searchScopeListeners.exit();
+            }
+        }
+        finally {
+            searchScope.exit();
+        }
+    }
+
+    public static void main(String[] args)
+            throws RunnerException
+    {
+        new Runner(new OptionsBuilder()
+                .include(".*" + BenchmarkComputedScoreQuery.class.getSimpleName() + ".*")
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wrmsr.search.dsl;
+
+import com.google.common.collect.ImmutableList;
+import com.wrmsr.search.dsl.query.node.BooleanQueryNode;
+import com.wrmsr.search.dsl.query.node.BoostedQueryNode;
+import com.wrmsr.search.dsl.query.node.ConstantScoreQueryNode;
+import com.wrmsr.search.dsl.query.node.MatchQueryNode;
+import com.wrmsr.search.dsl.query.node.QueryNode;
+import com.wrmsr.search.dsl.query.node.TermQueryNode;
+import com.wrmsr.search.dsl.query.term.StringQueryTerm;
+
+import java.util.List;
+import java.util.Random;
+
+final class BenchmarkCorpus
+{
+    private static final List<String> WORDS = ImmutableList.of(
+            "lucene", "search", "index", "query", "score", "segment", "term", "field",
+            "document", "analyzer", "token", "scorer", "collector", "reader", "writer", "directory");
+
+    private BenchmarkCorpus()
+    {
+    }
+
+    public static List<SearchService.Doc> generateDocs(int count, long seed)
+    {
+        Random random = new Random(seed);
+        ImmutableList.Builder<SearchService.Doc> builder = ImmutableList.builder();
+        StringBuilder title = new StringBuilder();
+        for (int i = 0; i < count; ++i) {
+            title.setLength(0);
+            int wordCount = 2 + random.nextInt(5);
+            for (int j = 0; j < wordCount; ++j) {
+                if (j > 0) {
+                    title.append(' ');
+                }
+                title.append(WORDS.get(random.nextInt(WORDS.size())));
+            }
+            builder.add(new SearchService.Doc(title.toString(), String.format("%09d", random.nextInt(1_000_000_000)), 1950 + random.nextInt(70)));
+        }
+        return builder.build();
+    }
+
+    public static QueryNode newTermQueryNode()
+    {
+        return new TermQueryNode("isbn", new StringQueryTerm("193398817"));
+    }
+
+    public static QueryNode newBooleanQueryNode()
+    {
+        return new BooleanQueryNode(
+                ImmutableList.of(
+                        new BooleanQueryNode.ShouldClause(new MatchQueryNode("title", "lucene search")),
+                        new BooleanQueryNode.ShouldClause(newTermQueryNode())),
+                1);
+    }
+
+    public static QueryNode newNestedQueryNode()
+    {
+        return new BooleanQueryNode(
+                ImmutableList.of(
+                        new BooleanQueryNode.MustClause(new BoostedQueryNode(newBooleanQueryNode(), 2.0f)),
+                        new BooleanQueryNode.ShouldClause(new ConstantScoreQueryNode(new MatchQueryNode("title", "segment reader writer"), 0.5f)),
+                        new BooleanQueryNode.MustNotClause(new MatchQueryNode("title", "directory"))),
+                0);
+    }
+}
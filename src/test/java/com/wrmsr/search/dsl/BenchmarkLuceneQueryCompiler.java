@@ -0,0 +1,87 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wrmsr.search.dsl;
+
+import com.wrmsr.search.dsl.lucene.LuceneQueryCompiler;
+import com.wrmsr.search.dsl.lucene.QueryTermRenderer;
+import com.wrmsr.search.dsl.query.node.QueryNode;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.util.Version;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+public class BenchmarkLuceneQueryCompiler
+{
+    @Param({"term", "boolean", "nested"})
+    private String shape;
+
+    private LuceneQueryCompiler compiler;
+    private QueryNode queryNode;
+
+    @Setup
+    public void setup()
+    {
+        compiler = new LuceneQueryCompiler(new StandardAnalyzer(Version.LUCENE_4_9), new QueryTermRenderer());
+        switch (shape) {
+            case "term":
+                queryNode = BenchmarkCorpus.newTermQueryNode();
+                break;
+            case "boolean":
+                queryNode = BenchmarkCorpus.newBooleanQueryNode();
+                break;
+            case "nested":
+                queryNode = BenchmarkCorpus.newNestedQueryNode();
+                break;
+            default:
+                throw new IllegalArgumentException(shape);
+        }
+    }
+
+    @Benchmark
+    public Query compileQuery()
+    {
+        return compiler.compileQuery(queryNode);
+    }
+
+    public static void main(String[] args)
+            throws RunnerException
+    {
+        new Runner(new OptionsBuilder()
+                .include(".*" + BenchmarkLuceneQueryCompiler.class.getSimpleName() + ".*")
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wrmsr.search.dsl;
+
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.Key;
+import com.wrmsr.search.dsl.util.ScopeListeners;
+import org.apache.lucene.index.MultiReader;
+import org.apache.lucene.search.IndexSearcher;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+public class BenchmarkSearchScope
+{
+    private Injector injector;
+    private SearchScope searchScope;
+    private ScopeListeners<SearchScope> searchScopeListeners;
+    private IndexSearcher indexSearcher;
+
+    @Setup
+    public void setup()
+    {
+        injector = Guice.createInjector(new AppModule());
+        searchScope = injector.getInstance(SearchScope.class);
+        searchScopeListeners = injector.getInstance(new Key<ScopeListeners<SearchScope>>() {});
+        indexSearcher = new IndexSearcher(new MultiReader());
+    }
+
+    @Benchmark
+    public void enterSeedExit()
+    {
+        searchScope.enter();
+        try {
+            searchScope.seed(IndexSearcher.class, indexSearcher);
+        }
+        finally {
+            searchScope.exit();
+        }
+    }
+
+    @Benchmark
+    public Searcher enterSeedGetSearcherExit()
+    {
+        searchScope.enter();
+        try {
+            searchScope.seed(IndexSearcher.class, indexSearcher);
+            searchScopeListeners.enter();
+            try {
+                return injector.getInstance(Searcher.class);
+            }
+            finally {
+                searchScopeListeners.exit();
+            }
+        }
+        finally {
+            searchScope.exit();
+        }
+    }
+
+    public static void main(String[] args)
+            throws RunnerException
+    {
+        new Runner(new OptionsBuilder()
+                .include(".*" + BenchmarkSearchScope.class.getSimpleName() + ".*")
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
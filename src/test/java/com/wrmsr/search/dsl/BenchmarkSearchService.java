@@ -0,0 +1,94 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wrmsr.search.dsl;
+
+import com.google.inject.Guice;
+import com.wrmsr.search.dsl.query.node.QueryNode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+public class BenchmarkSearchService
+{
+    @Param({"100000"})
+    private int docCount;
+
+    @Param({"0", "4"})
+    private int searchThreads;
+
+    @Param({"10", "100"})
+    private int maxHits;
+
+    private SearchService searchService;
+    private QueryNode queryNode;
+
+    @Setup
+    public void setup()
+            throws IOException
+    {
+        SearchConfig config = new SearchConfig()
+                .setSearchThreads(searchThreads)
+                .setRefreshIntervalMillis(0);
+        searchService = Guice.createInjector(new AppModule(config)).getInstance(SearchService.class);
+        searchService.addDocs(BenchmarkCorpus.generateDocs(docCount, 0));
+        searchService.commit();
+        queryNode = BenchmarkCorpus.newNestedQueryNode();
+    }
+
+    @TearDown
+    public void tearDown()
+            throws IOException
+    {
+        searchService.close();
+    }
+
+    @Benchmark
+    public List<SearchService.Hit> searchDocs()
+            throws IOException
+    {
+        return searchService.searchDocs(queryNode, maxHits);
+    }
+
+    public static void main(String[] args)
+            throws RunnerException
+    {
+        new Runner(new OptionsBuilder()
+                .include(".*" + BenchmarkSearchService.class.getSimpleName() + ".*")
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}